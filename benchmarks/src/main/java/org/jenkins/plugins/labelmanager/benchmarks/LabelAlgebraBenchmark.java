@@ -0,0 +1,95 @@
+package org.jenkins.plugins.labelmanager.benchmarks;
+
+import org.jenkins.plugins.labelmanager.LabelManagerPeriodicWork;
+import org.jenkins.plugins.labelmanager.labels.LabelSet;
+import org.jenkins.plugins.labelmanager.model.LabelAction;
+import org.jenkins.plugins.labelmanager.model.LabelCron;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the interned {@link LabelSet} algebra against the string and {@link HashSet} implementation it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LabelAlgebraBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    private int labelCount;
+
+    @Param({"ADD", "REMOVE", "REPLACE"})
+    private LabelAction action;
+
+    private LabelCron cron;
+    private LabelManagerPeriodicWork periodicWork;
+    private String currentLabelString;
+    private LabelSet currentLabels;
+
+    @Setup
+    public void setup() {
+        StringBuilder current = new StringBuilder();
+        StringBuilder changed = new StringBuilder();
+        for (int i = 0; i < labelCount; i++) {
+            current.append("label-").append(i).append(' ');
+            // half of the cron labels overlap with the node labels
+            changed.append("label-").append(i + labelCount / 2).append(' ');
+        }
+        currentLabelString = current.toString().trim();
+        cron = new LabelCron("bench", "* * * * *", action, changed.toString().trim());
+        currentLabels = LabelSet.parse(currentLabelString);
+        cron.getLabelSet();
+        periodicWork = new LabelManagerPeriodicWork();
+    }
+
+    @TearDown
+    public void tearDown() {
+        periodicWork.stop();
+    }
+
+    /**
+     * The implementation of <i>getResultingStringFromCron</i> before the label algebra.
+     */
+    @Benchmark
+    public String hashSet() {
+        Set<String> hs = new HashSet<>(Arrays.asList(currentLabelString.split(" ")));
+        switch (cron.getLabelAction()) {
+            case REPLACE:
+                hs = new HashSet<>(cron.getLabels());
+                break;
+            case ADD:
+                hs.addAll(cron.getLabels());
+                break;
+            case REMOVE:
+                hs.removeAll(cron.getLabels());
+                break;
+        }
+        return String.join(" ", hs).trim();
+    }
+
+    /**
+     * Parsing the node labels, applying the cron and joining the result, what a single cron on a node costs.
+     */
+    @Benchmark
+    public String labelSet() {
+        return cron.apply(LabelSet.parse(currentLabelString)).toLabelString();
+    }
+
+    @Benchmark
+    public String getResultingStringFromCron() {
+        return periodicWork.getResultingStringFromCron(cron, currentLabelString);
+    }
+
+    /**
+     * Applying the cron to already interned labels, what every further cron on the same node costs in a tick.
+     */
+    @Benchmark
+    public LabelSet labelSetInterned() {
+        return cron.apply(currentLabels);
+    }
+}
@@ -0,0 +1,51 @@
+package org.jenkins.plugins.labelmanager.benchmarks;
+
+import hudson.util.XStream2;
+import org.jenkins.plugins.labelmanager.model.LabelAction;
+import org.jenkins.plugins.labelmanager.model.LabelCron;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saving and loading the crons through XStream, including the {@link LabelCron.LabelConverter} and
+ * {@link LabelCron.TypeConverter}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    private int cronCount;
+
+    private XStream2 xstream;
+    private LinkedHashSet<LabelCron> crons;
+    private String xml;
+
+    @Setup
+    public void setup() {
+        xstream = new XStream2();
+        xstream.processAnnotations(LabelCron.class);
+        crons = new LinkedHashSet<>();
+        for (int i = 0; i < cronCount; i++) {
+            crons.add(new LabelCron("cron" + i, "H * * * *", LabelAction.values()[i % 3], "label" + i + " shared other" + (i % 10),
+                    "node" + i + " node" + (i + 1) + " \"node with space\""));
+        }
+        xml = xstream.toXML(crons);
+    }
+
+    @Benchmark
+    public String save() {
+        return xstream.toXML(crons);
+    }
+
+    @Benchmark
+    public Object load() {
+        return xstream.fromXML(xml);
+    }
+}
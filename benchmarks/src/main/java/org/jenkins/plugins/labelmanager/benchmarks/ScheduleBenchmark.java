@@ -0,0 +1,71 @@
+package org.jenkins.plugins.labelmanager.benchmarks;
+
+import org.jenkins.plugins.labelmanager.LabelManagerPeriodicWork;
+import org.jenkins.plugins.labelmanager.model.LabelAction;
+import org.jenkins.plugins.labelmanager.model.LabelCron;
+import org.jenkins.plugins.labelmanager.schedule.CronFire;
+import org.jenkins.plugins.labelmanager.schedule.CronSchedule;
+import org.jenkins.plugins.labelmanager.utils.Utils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of finding the due crons of one tick, by re-calculating every cron and through the {@link CronSchedule}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScheduleBenchmark {
+
+    private static final long START_TIME = 692890282000L;
+
+    @Param({"10", "1000", "10000"})
+    private int cronCount;
+
+    private List<LabelCron> crons;
+    private LabelManagerPeriodicWork periodicWork;
+    private CronSchedule schedule;
+    private long tickTime;
+
+    @Setup
+    public void setup() {
+        crons = new ArrayList<>(cronCount);
+        for (int i = 0; i < cronCount; i++) {
+            crons.add(new LabelCron("cron" + i, (i % 60) + " " + (i % 24) + " * * *", LabelAction.ADD, "label" + i));
+        }
+        periodicWork = new LabelManagerPeriodicWork();
+        schedule = new CronSchedule();
+        schedule.reset(crons, START_TIME);
+        tickTime = START_TIME;
+    }
+
+    @TearDown
+    public void tearDown() {
+        periodicWork.stop();
+    }
+
+    @Benchmark
+    public long calculateDelay() {
+        return Utils.calculateDelay(START_TIME, crons.get(0));
+    }
+
+    @Benchmark
+    public LabelCron getNextScheduledCron() {
+        return periodicWork.getNextScheduledCron(START_TIME, crons);
+    }
+
+    /**
+     * One worker tick through the schedule, every invocation is the next minute.
+     */
+    @Benchmark
+    public List<CronFire> pollDue() {
+        tickTime += CronSchedule.MIN;
+        return schedule.pollDue(tickTime, CronSchedule.MIN);
+    }
+}
@@ -0,0 +1,246 @@
+package org.jenkins.plugins.labelmanager;
+
+import hudson.model.Api;
+import jenkins.model.Jenkins;
+import net.sf.json.JSON;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONException;
+import net.sf.json.JSONObject;
+import net.sf.json.JSONSerializer;
+import org.apache.commons.io.IOUtils;
+import org.jenkins.plugins.labelmanager.model.LabelAction;
+import org.jenkins.plugins.labelmanager.model.LabelCron;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+import org.kohsuke.stapler.interceptor.RequirePOST;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * REST API for single crons, so automation does not have to post the whole configuration for every change:
+ *
+ * <ul>
+ *     <li><i>crons/api/json</i> lists all crons with their versions.</li>
+ *     <li><i>crons/create</i> (POST) creates a cron, 409 if it exists.</li>
+ *     <li><i>crons/cron/NAME/</i> returns a cron, <i>crons/cron/NAME/update</i> (POST) updates and
+ *     <i>crons/cron/NAME/doDelete</i> (POST, optional <i>version</i>) deletes it.</li>
+ *     <li><i>crons/import</i> (POST) applies a list of crons, or <i>{"crons": [...], "delete": {"NAME": version}}</i>,
+ *     all or nothing.</li>
+ * </ul>
+ *
+ * A cron is written as <i>{"name", "cron", "labelAction", "labelString", "typeString", "version"}</i>. A version other
+ * than 0 must match the current version of the cron or the change is rejected with 409, invalid crons are rejected with
+ * 400. Changes are POSTs and need a crumb like any other form. They go through
+ * {@link LabelManagerPluginImpl#applyCronChanges} and only touch the changed crons.
+ */
+@ExportedBean(defaultVisibility = 999)
+public class CronApi {
+
+    private final LabelManagerPluginImpl manager;
+
+    public CronApi(LabelManagerPluginImpl manager) {
+        this.manager = manager;
+    }
+
+    @Exported
+    public Collection<LabelCron> getCrons() {
+        return manager.getCrons();
+    }
+
+    public Api getApi() {
+        return new Api(this);
+    }
+
+    public CronResource getCron(String name) {
+        final LabelCron c = manager.getCron(name);
+        return c == null ? null : new CronResource(name);
+    }
+
+    @RequirePOST
+    public void doCreate(StaplerRequest req, StaplerResponse rsp) throws IOException {
+        Jenkins.getActiveInstance().checkPermission(Jenkins.ADMINISTER);
+        final LabelCron c;
+        try {
+            c = fromJSON(JSONObject.fromObject(readBody(req)));
+        } catch (JSONException | IllegalArgumentException ex) {
+            sendError(rsp, HttpServletResponse.SC_BAD_REQUEST, ex.getMessage());
+            return;
+        }
+        final CronChanges result;
+        synchronized (manager) {
+            if (c.getName() != null && manager.getCron(c.getName()) != null) {
+                sendError(rsp, HttpServletResponse.SC_CONFLICT, "A cron named " + c.getName() + " already exists!");
+                return;
+            }
+            c.setVersion(0);
+            result = manager.applyCronChanges(Collections.singletonList(c), Collections.emptyMap());
+        }
+        if (!result.isApplied()) {
+            sendResult(rsp, result);
+            return;
+        }
+        sendJSON(rsp, HttpServletResponse.SC_CREATED, toJSON(manager.getCron(c.getName())));
+    }
+
+    @RequirePOST
+    public void doImport(StaplerRequest req, StaplerResponse rsp) throws IOException {
+        Jenkins.getActiveInstance().checkPermission(Jenkins.ADMINISTER);
+        final List<LabelCron> upserts = new ArrayList<>();
+        final Map<String, Long> deletes = new LinkedHashMap<>();
+        try {
+            final JSON json = JSONSerializer.toJSON(readBody(req));
+            final JSONArray crons;
+            if (json instanceof JSONArray) {
+                crons = (JSONArray) json;
+            } else {
+                final JSONObject o = (JSONObject) json;
+                crons = o.optJSONArray("crons") == null ? new JSONArray() : o.getJSONArray("crons");
+                final JSONObject delete = o.optJSONObject("delete");
+                if (delete != null && !delete.isNullObject()) {
+                    for (Object name : delete.keySet()) {
+                        deletes.put((String) name, delete.optLong((String) name, 0));
+                    }
+                }
+            }
+            for (int i = 0; i < crons.size(); i++) {
+                upserts.add(fromJSON(crons.getJSONObject(i)));
+            }
+        } catch (JSONException | IllegalArgumentException | ClassCastException ex) {
+            sendError(rsp, HttpServletResponse.SC_BAD_REQUEST, ex.getMessage());
+            return;
+        }
+        sendResult(rsp, manager.applyCronChanges(upserts, deletes));
+    }
+
+    /**
+     * A single cron, <i>crons/cron/NAME/</i>.
+     */
+    public class CronResource {
+
+        private final String name;
+
+        CronResource(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Returns the cron, changes go through {@link #doUpdate} and {@link #doDoDelete}.
+         */
+        public void doIndex(StaplerRequest req, StaplerResponse rsp) throws IOException {
+            if (!"GET".equals(req.getMethod())) {
+                sendError(rsp, HttpServletResponse.SC_METHOD_NOT_ALLOWED, req.getMethod() + " is not supported, use update or doDelete");
+                return;
+            }
+            final LabelCron c = manager.getCron(name);
+            if (c == null) {
+                sendError(rsp, HttpServletResponse.SC_NOT_FOUND, "No cron named " + name);
+            } else {
+                sendJSON(rsp, HttpServletResponse.SC_OK, toJSON(c));
+            }
+        }
+
+        @RequirePOST
+        public void doUpdate(StaplerRequest req, StaplerResponse rsp) throws IOException {
+            Jenkins.getActiveInstance().checkPermission(Jenkins.ADMINISTER);
+            final LabelCron c;
+            try {
+                final JSONObject json = JSONObject.fromObject(readBody(req));
+                if (!json.has("name")) json.put("name", name);
+                c = fromJSON(json);
+            } catch (JSONException | IllegalArgumentException ex) {
+                sendError(rsp, HttpServletResponse.SC_BAD_REQUEST, ex.getMessage());
+                return;
+            }
+            if (!name.equals(c.getName())) {
+                sendError(rsp, HttpServletResponse.SC_BAD_REQUEST, "Crons cannot be renamed, delete and create it instead");
+                return;
+            }
+            final CronChanges result = manager.applyCronChanges(Collections.singletonList(c), Collections.emptyMap());
+            if (!result.isApplied()) {
+                sendResult(rsp, result);
+            } else {
+                sendJSON(rsp, HttpServletResponse.SC_OK, toJSON(manager.getCron(name)));
+            }
+        }
+
+        /**
+         * Named like the delete action of core, <i>crons/cron/NAME/doDelete</i>.
+         */
+        @RequirePOST
+        public void doDoDelete(StaplerRequest req, StaplerResponse rsp) throws IOException {
+            Jenkins.getActiveInstance().checkPermission(Jenkins.ADMINISTER);
+            long version = 0;
+            try {
+                if (req.getParameter("version") != null) version = Long.parseLong(req.getParameter("version"));
+            } catch (NumberFormatException ex) {
+                sendError(rsp, HttpServletResponse.SC_BAD_REQUEST, "Parameter version must be a number");
+                return;
+            }
+            sendResult(rsp, manager.applyCronChanges(Collections.emptyList(), Collections.singletonMap(name, version)));
+        }
+
+        public Api getApi() {
+            return new Api(manager.getCron(name));
+        }
+    }
+
+    static LabelCron fromJSON(JSONObject json) {
+        final String action = json.optString("labelAction", null);
+        final LabelCron c = new LabelCron(json.optString("name", null), json.optString("cron", null),
+                action == null || action.isEmpty() ? null : LabelAction.valueOf(action),
+                json.optString("labelString", ""), json.optString("typeString", ""));
+        c.setVersion(json.optLong("version", 0));
+        return c;
+    }
+
+    static JSONObject toJSON(LabelCron c) {
+        final JSONObject json = new JSONObject();
+        json.put("name", c.getName());
+        json.put("cron", c.getCron());
+        json.put("labelAction", c.getLabelAction().name());
+        json.put("labelString", c.getLabelString());
+        json.put("typeString", c.getTypeString());
+        json.put("version", c.getVersion());
+        return json;
+    }
+
+    private static String readBody(StaplerRequest req) throws IOException {
+        return IOUtils.toString(req.getReader());
+    }
+
+    /**
+     * 400 for invalid crons, 404 if a deleted cron is missing, 409 for version conflicts, otherwise 200.
+     */
+    private static void sendResult(StaplerResponse rsp, CronChanges result) throws IOException {
+        int status = HttpServletResponse.SC_OK;
+        if (!result.getInvalid().isEmpty()) {
+            status = HttpServletResponse.SC_BAD_REQUEST;
+        } else if (!result.getConflicts().isEmpty()) {
+            status = HttpServletResponse.SC_CONFLICT;
+        } else if (!result.getMissing().isEmpty()) {
+            status = HttpServletResponse.SC_NOT_FOUND;
+        }
+        sendJSON(rsp, status, result.toJSON());
+    }
+
+    private static void sendError(StaplerResponse rsp, int status, String message) throws IOException {
+        final JSONObject json = new JSONObject();
+        json.put("error", String.valueOf(message));
+        sendJSON(rsp, status, json);
+    }
+
+    private static void sendJSON(StaplerResponse rsp, int status, JSON json) throws IOException {
+        rsp.setStatus(status);
+        rsp.setContentType("application/json;charset=UTF-8");
+        rsp.getWriter().print(json.toString());
+    }
+}
@@ -0,0 +1,90 @@
+package org.jenkins.plugins.labelmanager;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of {@link LabelManagerPluginImpl#applyCronChanges}. The changes are applied all or nothing: if a single
+ * cron is invalid, missing or was changed concurrently nothing is applied.
+ */
+public class CronChanges {
+
+    private final List<String> created = new ArrayList<>();
+    private final List<String> updated = new ArrayList<>();
+    private final List<String> unchanged = new ArrayList<>();
+    private final List<String> deleted = new ArrayList<>();
+    private final List<String> missing = new ArrayList<>();
+    private final Map<String, String> invalid = new LinkedHashMap<>();
+    private final Map<String, String> conflicts = new LinkedHashMap<>();
+
+    /**
+     * @return
+     *      true if the changes were applied.
+     */
+    public boolean isApplied() {
+        return missing.isEmpty() && invalid.isEmpty() && conflicts.isEmpty();
+    }
+
+    public List<String> getCreated() {
+        return created;
+    }
+
+    public List<String> getUpdated() {
+        return updated;
+    }
+
+    public List<String> getUnchanged() {
+        return unchanged;
+    }
+
+    public List<String> getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * @return
+     *      Names of crons to delete that do not exist.
+     */
+    public List<String> getMissing() {
+        return missing;
+    }
+
+    /**
+     * @return
+     *      Validation message by cron name.
+     */
+    public Map<String, String> getInvalid() {
+        return invalid;
+    }
+
+    /**
+     * @return
+     *      Version mismatch by cron name.
+     */
+    public Map<String, String> getConflicts() {
+        return conflicts;
+    }
+
+    public JSONObject toJSON() {
+        final JSONObject json = new JSONObject();
+        json.put("applied", isApplied());
+        json.put("created", JSONArray.fromObject(created));
+        json.put("updated", JSONArray.fromObject(updated));
+        json.put("unchanged", JSONArray.fromObject(unchanged));
+        json.put("deleted", JSONArray.fromObject(deleted));
+        json.put("missing", JSONArray.fromObject(missing));
+        json.put("invalid", JSONObject.fromObject(invalid));
+        json.put("conflicts", JSONObject.fromObject(conflicts));
+        return json;
+    }
+
+    @Override
+    public String toString() {
+        return toJSON().toString();
+    }
+}
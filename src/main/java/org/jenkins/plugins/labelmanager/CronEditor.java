@@ -0,0 +1,66 @@
+package org.jenkins.plugins.labelmanager;
+
+import hudson.Util;
+import hudson.model.Descriptor;
+import hudson.util.FormValidation;
+import jenkins.model.Jenkins;
+import org.jenkins.plugins.labelmanager.model.LabelCron;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.interceptor.RequirePOST;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+
+/**
+ * Edit page of a single cron, <i>cron/NAME/</i>, or of a new cron, <i>newCron/</i>. Submitting it only changes
+ * this cron instead of posting the whole configuration.
+ */
+public class CronEditor {
+
+    private final LabelManagerPluginImpl manager;
+    private final LabelCron cron;
+
+    /**
+     * @param cron
+     *      The cron to edit, null for a new cron.
+     */
+    public CronEditor(LabelManagerPluginImpl manager, LabelCron cron) {
+        this.manager = manager;
+        this.cron = cron;
+    }
+
+    public LabelCron getCron() {
+        return cron;
+    }
+
+    public boolean isNew() {
+        return cron == null;
+    }
+
+    public String getDisplayName() {
+        return cron == null ? "New Cron" : cron.getName();
+    }
+
+    public Descriptor<LabelCron> getLabelCronDescriptor() {
+        return Jenkins.getActiveInstance().getDescriptorOrDie(LabelCron.class);
+    }
+
+    @RequirePOST
+    public void doConfigSubmit(StaplerRequest req, StaplerResponse rsp) throws IOException, ServletException, Descriptor.FormException {
+        Jenkins.getActiveInstance().checkPermission(Jenkins.ADMINISTER);
+        final LabelCron c = req.bindJSON(LabelCron.class, req.getSubmittedForm());
+        final FormValidation validation = manager.putCron(cron == null ? null : cron.getName(), c);
+        if (validation.kind != FormValidation.Kind.OK) {
+            throw new Descriptor.FormException(Util.fixNull(validation.getMessage()), "cron");
+        }
+        rsp.sendRedirect2(req.getContextPath() + "/label-manager/");
+    }
+
+    @RequirePOST
+    public void doDelete(StaplerRequest req, StaplerResponse rsp) throws IOException {
+        Jenkins.getActiveInstance().checkPermission(Jenkins.ADMINISTER);
+        if (cron != null) manager.removeCron(cron.getName());
+        rsp.sendRedirect2(req.getContextPath() + "/label-manager/");
+    }
+}
@@ -0,0 +1,133 @@
+package org.jenkins.plugins.labelmanager;
+
+import hudson.Util;
+import org.jenkins.plugins.labelmanager.model.LabelCron;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One page of the crons matching a filter, so the management page only renders a few rows instead of a form for
+ * every cron.
+ */
+public class CronPage {
+
+    public static final int DEFAULT_SIZE = 50;
+
+    private final String name;
+    private final String node;
+    private final String label;
+    private final int page;
+    private final int size;
+    private final int total;
+    private final List<LabelCron> crons;
+
+    /**
+     * @param all
+     *      All crons in configuration order.
+     * @param name
+     *      Part of the cron name, case insensitive, or null.
+     * @param node
+     *      Part of the node string, case insensitive, or null.
+     * @param label
+     *      A label the cron sets, removes or replaces with, or null.
+     * @param page
+     *      The page to show, starting at 0.
+     * @param size
+     *      The number of crons per page.
+     */
+    public CronPage(Collection<LabelCron> all, String name, String node, String label, int page, int size) {
+        this.name = Util.fixEmptyAndTrim(name);
+        this.node = Util.fixEmptyAndTrim(node);
+        this.label = Util.fixEmptyAndTrim(label);
+        this.size = Math.max(1, size);
+        final List<LabelCron> matches = new ArrayList<>();
+        for (LabelCron c : all) {
+            if (matches(c)) matches.add(c);
+        }
+        this.total = matches.size();
+        // a page past the end shows the last page
+        this.page = Math.min(Math.max(0, page), Math.max(0, getPageCount() - 1));
+        final int from = this.page * this.size;
+        this.crons = new ArrayList<>(matches.subList(from, Math.min(total, from + this.size)));
+    }
+
+    private boolean matches(LabelCron c) {
+        if (name != null && !Util.fixNull(c.getName()).toLowerCase(Locale.ENGLISH).contains(name.toLowerCase(Locale.ENGLISH))) return false;
+        if (node != null && !c.getTypeString().toLowerCase(Locale.ENGLISH).contains(node.toLowerCase(Locale.ENGLISH))) return false;
+        return label == null || c.getLabels().contains(label);
+    }
+
+    public List<LabelCron> getCrons() {
+        return Collections.unmodifiableList(crons);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return
+     *      The number of crons matching the filter.
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    public int getPageCount() {
+        return (total + size - 1) / size;
+    }
+
+    public boolean isFirst() {
+        return page == 0;
+    }
+
+    public boolean isLast() {
+        return page >= getPageCount() - 1;
+    }
+
+    /**
+     * @return
+     *      The query string of another page with the same filter.
+     */
+    public String getPageUrl(int page) {
+        final StringBuilder sb = new StringBuilder("?page=").append(page).append("&size=").append(size);
+        if (name != null) sb.append("&name=").append(encode(name));
+        if (node != null) sb.append("&node=").append(encode(node));
+        if (label != null) sb.append("&label=").append(encode(label));
+        return sb.toString();
+    }
+
+    public String getCronUrl(LabelCron c) {
+        return "cron/" + Util.rawEncode(c.getName()) + "/";
+    }
+
+    private static String encode(String s) {
+        try {
+            return URLEncoder.encode(s, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
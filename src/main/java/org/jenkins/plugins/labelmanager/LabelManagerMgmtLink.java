@@ -6,11 +6,20 @@ import hudson.model.Descriptor;
 import hudson.model.ManagementLink;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nonnull;
 import javax.servlet.ServletException;
 import jenkins.model.Jenkins;
 
+import org.jenkins.plugins.labelmanager.executors.ExecutorReshaper;
+import org.jenkins.plugins.labelmanager.history.ExecutionHistory;
+import org.jenkins.plugins.labelmanager.index.LabelIndex;
+import org.jenkins.plugins.labelmanager.index.LabelIndexApi;
+import org.jenkins.plugins.labelmanager.lease.LeaseManager;
+import org.jenkins.plugins.labelmanager.metrics.LabelManagerMetrics;
 import org.jenkins.plugins.labelmanager.model.LabelCron;
+import org.jenkins.plugins.labelmanager.plan.LabelPlan;
+import org.kohsuke.stapler.Stapler;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
 import org.kohsuke.stapler.interceptor.RequirePOST;
@@ -18,6 +27,8 @@ import org.kohsuke.stapler.interceptor.RequirePOST;
 @Extension
 public class LabelManagerMgmtLink extends ManagementLink implements Describable<LabelManagerMgmtLink> {
 
+    public static final int DEFAULT_PLAN_HOURS = 24;
+
     private final LabelManagerPluginImpl manager;
 
     public LabelManagerMgmtLink() {
@@ -38,6 +49,115 @@ public class LabelManagerMgmtLink extends ManagementLink implements Describable<
         return manager;
     }
 
+    public LabelManagerPeriodicWork getWorker() {
+        return LabelManagerPeriodicWork.get();
+    }
+
+    /**
+     * Dry run of the crons, <i>plan/?hours=24</i> renders it and <i>plan/api/json</i> exports it. The window starts at
+     * the <i>from</i> parameter (ms since epoch) or now.
+     */
+    public LabelPlan getPlan() {
+        Jenkins.getActiveInstance().checkPermission(Jenkins.ADMINISTER);
+        final StaplerRequest req = Stapler.getCurrentRequest();
+        long from = System.currentTimeMillis();
+        double hours = DEFAULT_PLAN_HOURS;
+        if (req != null) {
+            try {
+                if (req.getParameter("from") != null) from = Long.parseLong(req.getParameter("from"));
+                if (req.getParameter("hours") != null) hours = Double.parseDouble(req.getParameter("hours"));
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Parameters from and hours must be numbers", ex);
+            }
+        }
+        return getWorker().plan(from, from + (long) (hours * TimeUnit.HOURS.toMillis(1)));
+    }
+
+    /**
+     * Label to node index for dashboards, see {@link LabelIndexApi}. Readable by everyone who can read Jenkins, like
+     * <i>/computer/api/json</i>.
+     */
+    public LabelIndexApi getIndex() {
+        Jenkins.getActiveInstance().checkPermission(Jenkins.READ);
+        return new LabelIndexApi(LabelIndex.get());
+    }
+
+    /**
+     * What every cron changed on which node, <i>history/?cron=X&amp;node=Y</i> renders it and <i>history/api/json</i>
+     * exports it.
+     */
+    public ExecutionHistory getHistory() {
+        Jenkins.getActiveInstance().checkPermission(Jenkins.ADMINISTER);
+        return manager.getHistory();
+    }
+
+    /**
+     * Requested and draining executor changes, see {@link ExecutorReshaper}.
+     */
+    public ExecutorReshaper getExecutors() {
+        Jenkins.getActiveInstance().checkPermission(Jenkins.ADMINISTER);
+        return ExecutorReshaper.get();
+    }
+
+    /**
+     * Whether this controller holds the lease, null if it does not share its configuration, see {@link LeaseManager}.
+     */
+    public LeaseManager getLease() {
+        Jenkins.getActiveInstance().checkPermission(Jenkins.ADMINISTER);
+        return LeaseManager.get();
+    }
+
+    /**
+     * Worker counters and histograms as JSON, see {@link LabelManagerMetrics}.
+     */
+    public LabelManagerMetrics getMetrics() {
+        Jenkins.getActiveInstance().checkPermission(Jenkins.READ);
+        return LabelManagerMetrics.get();
+    }
+
+    /**
+     * The crons shown on the management page, filtered by the <i>name</i>, <i>node</i> and <i>label</i> parameters
+     * and paged by <i>page</i> and <i>size</i>.
+     */
+    public CronPage getCronPage() {
+        final StaplerRequest req = Stapler.getCurrentRequest();
+        if (req == null) {
+            return new CronPage(manager.getCrons(), null, null, null, 0, CronPage.DEFAULT_SIZE);
+        }
+        return new CronPage(manager.getCrons(), req.getParameter("name"), req.getParameter("node"), req.getParameter("label"),
+                intParameter(req, "page", 0), intParameter(req, "size", CronPage.DEFAULT_SIZE));
+    }
+
+    private static int intParameter(final StaplerRequest req, final String name, final int defaultValue) {
+        try {
+            return req.getParameter(name) == null ? defaultValue : Integer.parseInt(req.getParameter(name));
+        } catch (NumberFormatException ex) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Edit page of a single cron, <i>cron/NAME/</i>.
+     */
+    public CronEditor getCron(String name) {
+        Jenkins.getActiveInstance().checkPermission(Jenkins.ADMINISTER);
+        final LabelCron c = manager.getCron(name);
+        return c == null ? null : new CronEditor(manager, c);
+    }
+
+    /**
+     * REST API to create, update and delete single crons, see {@link CronApi}.
+     */
+    public CronApi getCrons() {
+        Jenkins.getActiveInstance().checkPermission(Jenkins.ADMINISTER);
+        return new CronApi(manager);
+    }
+
+    public CronEditor getNewCron() {
+        Jenkins.getActiveInstance().checkPermission(Jenkins.ADMINISTER);
+        return new CronEditor(manager, null);
+    }
+
     @RequirePOST
     public void doConfigSubmit(StaplerRequest req, StaplerResponse rsp) throws IOException, ServletException {
         Jenkins.getActiveInstance().checkPermission(Jenkins.ADMINISTER);
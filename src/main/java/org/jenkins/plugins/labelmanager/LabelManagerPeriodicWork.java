@@ -2,17 +2,35 @@ package org.jenkins.plugins.labelmanager;
 
 import hudson.Extension;
 import hudson.model.Node;
+import hudson.model.PeriodicWork;
 import hudson.model.TaskListener;
 import jenkins.model.Jenkins;
+import org.jenkins.plugins.labelmanager.batch.BatchResult;
+import org.jenkins.plugins.labelmanager.batch.NodeBatch;
+import org.jenkins.plugins.labelmanager.batch.NodeChange;
+import org.jenkins.plugins.labelmanager.batch.NodeResult;
+import org.jenkins.plugins.labelmanager.executors.ExecutorReshaper;
+import org.jenkins.plugins.labelmanager.history.ExecutionHistory;
+import org.jenkins.plugins.labelmanager.history.ExecutionRecord;
 import org.jenkins.plugins.labelmanager.hudson.model.AsyncPeriodicWork;
+import org.jenkins.plugins.labelmanager.labels.LabelSet;
+import org.jenkins.plugins.labelmanager.lease.LeaseManager;
+import org.jenkins.plugins.labelmanager.metrics.LabelManagerMetrics;
 import org.jenkins.plugins.labelmanager.model.LabelCron;
+import org.jenkins.plugins.labelmanager.model.type.LabelExpressionType;
 import org.jenkins.plugins.labelmanager.model.type.NodeType;
+import org.jenkins.plugins.labelmanager.plan.LabelPlan;
+import org.jenkins.plugins.labelmanager.reconcile.Reconciler;
+import org.jenkins.plugins.labelmanager.schedule.CronFire;
+import org.jenkins.plugins.labelmanager.schedule.CronSchedule;
 import org.jenkins.plugins.labelmanager.model.type.ResourceType;
 import org.jenkins.plugins.labelmanager.model.type.TypeInterface;
 import org.jenkins.plugins.labelmanager.utils.JenkinsUtils;
 import org.jenkins.plugins.labelmanager.utils.Utils;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -20,33 +38,209 @@ import java.util.logging.Logger;
 public class LabelManagerPeriodicWork extends AsyncPeriodicWork {
     private static final Logger LOGGER = Logger.getLogger(LabelManagerPeriodicWork.class.getName());
 
+    /**
+     * Sleep until the next cron is due instead of polling every minute. Read once at startup since the recurrence
+     * period of a {@link PeriodicWork} cannot change after it is registered.
+     */
+    public static final boolean EVENT_DRIVEN = Boolean.getBoolean(LabelManagerPeriodicWork.class.getName() + ".eventDriven");
+
     private final LabelManagerPluginImpl plugin = LabelManagerPluginImpl.getInstance();
+    private final Reconciler reconciler;
+    private final Runnable invalidate;
+    private final Runnable wakeUp = this::wakeUp;
+    private volatile long lastReconcile;
+    private long leaseToken = -1;
 
     public LabelManagerPeriodicWork() {
         super("Label Manager Worker Thread");
+        reconciler = plugin == null ? null : new Reconciler(plugin::getCrons, this::stageNodes,
+                () -> plugin.getSchedule().peekNextExecution());
+        invalidate = reconciler == null ? null : reconciler::invalidate;
+        if (plugin != null) {
+            plugin.getSchedule().addChangeListener(invalidate);
+        }
+        if (EVENT_DRIVEN && plugin != null) {
+            plugin.getSchedule().addChangeListener(wakeUp);
+            wakeUp();
+        }
+    }
+
+    /**
+     * Stops listening to the schedule and ends the worker thread, called when the plugin stops.
+     */
+    @Override
+    public void stop() {
+        if (plugin != null) {
+            plugin.getSchedule().removeChangeListener(invalidate);
+            plugin.getSchedule().removeChangeListener(wakeUp);
+        }
+        super.stop();
+    }
+
+    public static LabelManagerPeriodicWork get() {
+        return PeriodicWork.all().get(LabelManagerPeriodicWork.class);
     }
 
     @Override
     public long getRecurrencePeriod() {
-        return MIN; // over a min diff we forget
+        // when event driven the periodic run is only a watchdog re-arming the wake up
+        return EVENT_DRIVEN ? DAY : MIN; // over a min diff we forget
+    }
+
+    /**
+     * Schedules the next run for the earliest execution in the schedule or the next reconciliation, or no run at all if
+     * nothing is scheduled.
+     */
+    public void wakeUp() {
+        long next = plugin.getSchedule().peekNextExecution();
+        if (plugin.getReconcileInterval() > 0) {
+            final long reconcile = lastReconcile + plugin.getReconcileInterval() * MIN;
+            next = next < 0 ? reconcile : Math.min(next, reconcile);
+        }
+        if (next < 0) {
+            cancelScheduledRun();
+        } else {
+            scheduleRun(next - System.currentTimeMillis());
+        }
     }
 
     @Override
     protected void execute(final TaskListener arg0) {
         final long currentTime = System.currentTimeMillis();
         //final LabelCron forceLabelCron = new LabelCron("Every 2 min", "H/2 * * * *", LabelAction.REPLACE, "test");
-        for (LabelCron cron : plugin.getCrons()) {
-            final LabelCron c = getNextScheduledCron(currentTime, cron);
-            if (c != null) {
-                runCronTask(c);
+        // only the due crons are taken off the schedule, nothing else is touched. When polling everything due
+        // before the next tick has to run now.
+        final NodeBatch batch = new NodeBatch();
+        final LabelManagerMetrics metrics = LabelManagerMetrics.get();
+        final long skippedBefore = plugin.getSchedule().getSkippedCount();
+        int fired = 0;
+        int saves = 0;
+        final Map<String, Long> scheduledTimes = new HashMap<>();
+        try {
+            final LeaseManager lease = LeaseManager.get();
+            if (lease != null && !lease.isLeader()) {
+                // the leader applies the crons, a standby only keeps its schedule current so a takeover does not
+                // replay them
+                plugin.getSchedule().pollDue(currentTime, EVENT_DRIVEN ? 1 : MIN);
+                LOGGER.log(Level.FINE, "Standby, " + lease.getLeaderOwner() + " holds the lease");
+                return;
+            }
+            if (lease != null && lease.getToken() != leaseToken) {
+                // just took over, check all nodes as soon as possible
+                leaseToken = lease.getToken();
+                reconciler.invalidate();
+                lastReconcile = 0;
+            }
+            // executor requests first, so a cron due in this tick wins over an older request
+            ExecutorReshaper.get().stage(batch);
+            final List<CronFire> due = plugin.getSchedule().pollDue(currentTime, EVENT_DRIVEN ? 1 : MIN);
+            for (CronFire fire : due) {
+                scheduledTimes.put(fire.getCron().getName(), fire.getScheduledTime());
+                if (fire.isCatchUp()) {
+                    arg0.getLogger().println("Catching up missed execution " + fire);
+                }
+                metrics.recordScheduleLag(System.currentTimeMillis() - fire.getScheduledTime());
+                runCronTask(fire.getCron(), batch);
+                fired++;
+            }
+            // the resources and the nodes are saved once each, if they changed
+            final BatchResult result = commit(batch);
+            if (result != null) saves += result.getSaves();
+            record(batch, result, scheduledTimes);
+            if (fired > 0) {
+                reconciler.invalidate();
+            }
+            if (isReconcileDue(currentTime, fired)) {
+                saves += reconcile(currentTime);
+            }
+            if (plugin.saveWatermarks()) saves++;
+            if (result != null && !result.getResults().isEmpty()) {
+                arg0.getLogger().println(result);
             }
+        } finally {
+            final int skipped = (int) (plugin.getSchedule().getSkippedCount() - skippedBefore);
+            metrics.recordTick(System.currentTimeMillis() - currentTime, fired + skipped, fired, saves);
+            if (EVENT_DRIVEN) {
+                wakeUp();
+            }
+        }
+    }
+
+    private boolean isReconcileDue(final long currentTime, final int fired) {
+        final int interval = plugin.getReconcileInterval();
+        return interval > 0 && (fired > 0 || currentTime - lastReconcile >= interval * MIN);
+    }
+
+    /**
+     * Writes the desired state to the nodes that drifted from it, see {@link Reconciler}.
+     *
+     * @return
+     *      Number of saves, 0 if no node drifted.
+     */
+    private int reconcile(final long currentTime) {
+        lastReconcile = currentTime;
+        final NodeBatch batch = reconciler.reconcile(currentTime);
+        if (!batch.hasNodeWrites()) {
+            return 0;
         }
+        LOGGER.log(Level.INFO, "Reconciling " + batch.getChanges().size() + " drifted node(s)");
+        final BatchResult result = commit(batch);
+        record(batch, result, reconciler.getScheduledTimes());
+        return result == null ? 0 : result.getSaves();
     }
 
     public void runCronTask(final LabelCron c) {
-        final Jenkins instance = Jenkins.getActiveInstance();
-        final boolean inQuietModeBeforeBackup = instance.isQuietingDown();
+        final NodeBatch batch = new NodeBatch();
+        runCronTask(c, batch);
+        record(batch, commit(batch), Collections.emptyMap());
+    }
+
+    /**
+     * Adds what every cron changed on every node of the committed batch to the {@link ExecutionHistory} and writes it
+     * to disk.
+     *
+     * @param scheduledTimes
+     *      Time each cron was scheduled for by name, crons without one count as scheduled when they were applied.
+     */
+    private void record(final NodeBatch batch, final BatchResult result, final Map<String, Long> scheduledTimes) {
+        if (plugin == null || result == null || result.getResults().isEmpty()) {
+            return;
+        }
+        final ExecutionHistory history = plugin.getHistory();
+        final long appliedTime = System.currentTimeMillis();
+        final Iterator<NodeResult> results = result.getResults().iterator();
+        // the results are in the order the nodes were staged
+        for (NodeChange change : batch.getChanges()) {
+            final NodeResult r = results.hasNext() ? results.next() : null;
+            final int executorsBefore = change.getOriginalNumberOfExecutors();
+            for (NodeChange.Step step : change.getSteps()) {
+                final int delta = step.getExecutors() == null ? 0 : step.getExecutors() - executorsBefore;
+                final ExecutionRecord.Outcome outcome = r == null || !r.isSuccess() ? ExecutionRecord.Outcome.FAILED
+                        : step.getBefore().equals(step.getAfter()) && delta == 0 ? ExecutionRecord.Outcome.UNCHANGED
+                        : ExecutionRecord.Outcome.APPLIED;
+                final Long scheduled = scheduledTimes.get(step.getCron().getName());
+                history.record(step.getCron().getName(), change.getNodeName(), step.getBefore().toLabelString(),
+                        step.getAfter().toLabelString(), delta, scheduled == null ? appliedTime : scheduled, appliedTime, outcome);
+            }
+        }
+        history.flush();
+    }
+
+    /**
+     * Stages the changes of the cron in the batch, nothing is written to the nodes until the batch is committed.
+     */
+    public void runCronTask(final LabelCron c, final NodeBatch batch) {
+        runCronTask(c, batch, true);
+    }
+
+    /**
+     * Like {@link #runCronTask(LabelCron, NodeBatch)}, but resources are skipped and their labels are not read.
+     */
+    public void stageNodes(final LabelCron c, final NodeBatch batch) {
+        runCronTask(c, batch, false);
+    }
 
+    private void runCronTask(final LabelCron c, final NodeBatch batch, final boolean resources) {
         try {
             // loop through all type and apply changes
             for (TypeInterface type : c.getTypes()) {
@@ -58,22 +252,68 @@ public class LabelManagerPeriodicWork extends AsyncPeriodicWork {
                         LOGGER.log(Level.SEVERE, "Node does not exist, list available; " + JenkinsUtils.getAllNodeNames());
                         continue;
                     }
-                    String newLabels = getResultingStringFromCron(c, node.getLabelString());
-                    LOGGER.log(Level.FINE, "Setting node (" + node.getNodeName() + ") labels from [" + node.getLabelString() + "] to [" + newLabels + "]");
-                    node.setLabelString(newLabels);
+                    NodeChange change = batch.get(node);
+                    change.stage(c);
                     if (((NodeType) type).getNumberOfExecutors().isPresent()) {
-                        LOGGER.log(Level.FINE, "Setting node (" + node.getNodeName() + ") executors from [" + node.getNumExecutors() + "] to [" + ((NodeType) type).getNumberOfExecutors().get() + "]");
-                        JenkinsUtils.setNumExecutors(node, (int) ((NodeType) type).getNumberOfExecutors().get());
+                        change.setNumberOfExecutors((int) ((NodeType) type).getNumberOfExecutors().get());
+                    }
+                } else if (type instanceof LabelExpressionType) {
+                    // matched against the labels before this run, changes staged in the batch are not seen
+                    for (Node node : ((LabelExpressionType) type).get()) {
+                        batch.get(node).stage(c);
                     }
                 } else if (type instanceof ResourceType) {
-                    // LockableResource res = (LockableResource) type.get();
-                    LOGGER.log(Level.SEVERE, "Setting LockableResource (" + type + ") not supported.");
+                    if (!resources) continue;
+                    final String name = ((ResourceType) type).getResourceName();
+                    final LabelSet current = batch.getResources().getLabels(name);
+                    if (current == null) {
+                        LOGGER.log(Level.SEVERE, "Resource (" + name + ") does not exist, skipping...");
+                        continue;
+                    }
+                    batch.getResources().setLabels(name, c.apply(current));
                 } else {
                     LOGGER.log(Level.SEVERE, "Object is not of supported type!");
                 }
             }
         } catch (final Exception ex) {
             LOGGER.log(Level.SEVERE, "Failed to set labels with an exception!", ex);
+        }
+    }
+
+    /**
+     * Commits the batch, when controllers share the configuration only while the lease file shows this controller with
+     * its token and stays locked, see {@link LeaseManager#whileHolding(long, java.util.function.Supplier)}.
+     */
+    private BatchResult commit(final NodeBatch batch) {
+        final LeaseManager lease = LeaseManager.get();
+        if (lease == null) {
+            return commitBatch(batch);
+        }
+        try {
+            final AtomicBoolean committed = new AtomicBoolean();
+            final BatchResult result = lease.whileHolding(lease.getToken(), () -> {
+                committed.set(true);
+                return commitBatch(batch);
+            });
+            if (!committed.get()) {
+                LOGGER.log(Level.WARNING, "Lost the lease, dropping " + batch.getChanges().size() + " node change(s)");
+            }
+            return result;
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Unable to lock the lease, not applying any changes", ex);
+            return null;
+        }
+    }
+
+    private BatchResult commitBatch(final NodeBatch batch) {
+        final Jenkins instance = Jenkins.getActiveInstance();
+        final boolean inQuietModeBeforeBackup = instance.isQuietingDown();
+
+        try {
+            return batch.commit(plugin == null ? null : plugin.getApplyPool());
+        } catch (final Exception ex) {
+            LOGGER.log(Level.SEVERE, "Failed to set labels with an exception!", ex);
+            return null;
         } finally {
             if (!inQuietModeBeforeBackup)
                 instance.doCancelQuietDown();
@@ -82,20 +322,28 @@ public class LabelManagerPeriodicWork extends AsyncPeriodicWork {
         }
     }
 
+    /**
+     * Dry run of all configured crons for a window, see {@link #plan(Collection, long, long)}.
+     */
+    public LabelPlan plan(final long from, final long to) {
+        return plan(plugin.getCrons(), from, to);
+    }
+
+    /**
+     * Calculates how the nodes look at the end of the window <i>(from, to]</i> without changing anything. The crons
+     * are staged exactly like a real run, but the batch is never committed.
+     */
+    public LabelPlan plan(final Collection<LabelCron> crons, final long from, final long to) {
+        final List<CronFire> fires = CronSchedule.lastExecutions(crons, from, to);
+        final NodeBatch batch = new NodeBatch();
+        for (CronFire fire : fires) {
+            runCronTask(fire.getCron(), batch);
+        }
+        return new LabelPlan(from, to, fires, batch);
+    }
+
     public String getResultingStringFromCron(final LabelCron c, final String currentLabelString) {
-        Set<String> hs = new HashSet<>(Arrays.asList(currentLabelString.split(" ")));
-        switch (c.getLabelAction()) {
-            case REPLACE:
-                hs = new HashSet<>(c.getLabels());
-                break;
-            case ADD:
-                hs.addAll(c.getLabels());
-                break;
-            case REMOVE:
-                hs.removeAll(c.getLabels());
-                break;
-        }
-        return String.join(" ", hs).trim();
+        return c.apply(LabelSet.parse(currentLabelString)).toLabelString();
     }
 
     public LabelCron getNextScheduledCron(final long currentTime, final LabelCron... cArray) {
@@ -2,16 +2,31 @@ package org.jenkins.plugins.labelmanager;
 
 import hudson.Extension;
 import hudson.Plugin;
+import hudson.Util;
 import hudson.XmlFile;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.FormValidation;
+import hudson.util.NamingThreadFactory;
 import jenkins.model.Jenkins;
 import net.sf.json.JSONObject;
+import org.jenkins.plugins.labelmanager.history.ExecutionHistory;
+import org.jenkins.plugins.labelmanager.lease.LeaseManager;
 import org.jenkins.plugins.labelmanager.model.LabelCron;
+import org.jenkins.plugins.labelmanager.persistence.CronStore;
+import org.jenkins.plugins.labelmanager.schedule.CronSchedule;
+import org.jenkins.plugins.labelmanager.schedule.MisfirePolicy;
 import org.kohsuke.stapler.StaplerRequest;
 
 import javax.annotation.Nonnull;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -20,11 +35,25 @@ public class LabelManagerPluginImpl extends Plugin {
 
     private static final Logger LOGGER = Logger.getLogger(LabelManagerPluginImpl.class.getName());
 
+    public static final int DEFAULT_APPLY_THREADS = 4;
+
+    /**
+     * Crons used to be saved with the rest of the configuration, they are only read to migrate them to the
+     * {@link CronStore}.
+     */
+    @Deprecated
     private LinkedHashSet<LabelCron> crons;
+    private transient LinkedHashMap<String, LabelCron> cronMap = new LinkedHashMap<>();
+    private transient CronStore cronStore;
+    private transient ExecutionHistory history;
+    private int applyThreads = DEFAULT_APPLY_THREADS;
+    private MisfirePolicy misfirePolicy = MisfirePolicy.FIRE_ONCE;
+    private int reconcileInterval = 0;
+    private transient final CronSchedule schedule = new CronSchedule();
+    private transient ThreadPoolExecutor applyPool;
     private static LabelManagerPluginImpl instance = null;
 
     public LabelManagerPluginImpl() {
-        crons = new LinkedHashSet<>();
         setInstance(this);
     }
 
@@ -37,34 +66,291 @@ public class LabelManagerPluginImpl extends Plugin {
         super.start();
         try {
             load();
+            migrateCrons();
+            cronMap = byName(getCronStore().load());
         } catch (IOException ex) {
             LOGGER.log(Level.SEVERE, "Unable to load plugin configuration!");
             throw ex;
         }
+        schedule.setMisfirePolicy(misfirePolicy);
+        schedule.restore(cronMap.values(), System.currentTimeMillis(), loadWatermarks());
+        // start competing for the lease before the first tick, if controllers share the configuration
+        LeaseManager.get();
     }
 
     @Override
     public synchronized void configure(StaplerRequest req, JSONObject json) {
-        List<LabelCron> allCrons = new LinkedList<>();
-        for (LabelCron c : req.bindJSONToList(LabelCron.class, json.get("cronsInList"))) {
-            // lets validate the cron
-            if (!LabelCron.isLabelCronValid(c)) continue;
-            // now lets do any post config
-            //c.getTypes().forEach(TypeInterface::configure);
-            allCrons.add(c);
-            Optional<LabelCron> old = crons.stream().filter(a -> a == c).findFirst();
-            if (old.isPresent()) {
-                LOGGER.finest("Found an existing cron: " + old.get().getName());
-                // do we want to update any behind the scenes stuff?
+        setApplyThreads(json.optInt("applyThreads", applyThreads));
+        if (json.has("misfirePolicy")) {
+            setMisfirePolicy(MisfirePolicy.valueOf(json.getString("misfirePolicy")));
+        }
+        setReconcileInterval(json.optInt("reconcileInterval", reconcileInterval));
+        save();
+        final LabelManagerPeriodicWork worker = LabelManagerPeriodicWork.get();
+        if (LabelManagerPeriodicWork.EVENT_DRIVEN && worker != null) {
+            worker.wakeUp();
+        }
+        // the settings form does not post the crons, they are edited one by one
+        if (json.has("cronsInList")) {
+            List<LabelCron> submitted = req.bindJSONToList(LabelCron.class, json.get("cronsInList"));
+            if (submitted.isEmpty()) LOGGER.finest(json.toString());
+            updateCrons(submitted);
+        }
+    }
+
+    public synchronized LabelCron getCron(final String name) {
+        return cronMap.get(name);
+    }
+
+    private static LinkedHashMap<String, LabelCron> byName(final Collection<LabelCron> crons) {
+        final LinkedHashMap<String, LabelCron> map = new LinkedHashMap<>();
+        for (LabelCron c : crons) {
+            map.putIfAbsent(c.getName(), c);
+        }
+        return map;
+    }
+
+    /**
+     * Adds a cron or replaces the cron with the old name, keeping its position. Nothing changes if the cron is not
+     * valid.
+     *
+     * @param oldName
+     *      Name of the cron to replace, null to append a new cron.
+     * @param c
+     *      The new cron.
+     * @return
+     *      The validation of the cron, the cron was only saved if it is OK.
+     */
+    public synchronized FormValidation putCron(final String oldName, final LabelCron c) {
+        if (!c.getName().equals(oldName) && getCron(c.getName()) != null) {
+            return FormValidation.error("A cron named " + c.getName() + " already exists!");
+        }
+        final FormValidation validation = LabelCron.getLabelCronFormValidation(c);
+        if (validation.kind != FormValidation.Kind.OK) {
+            return validation;
+        }
+        if (oldName == null || oldName.equals(c.getName()) || getCron(oldName) == null) {
+            applyCronChanges(Collections.singletonList(c), Collections.emptyMap());
+            return validation;
+        }
+        // a rename keeps the position of the old cron, which needs the whole list
+        final List<LabelCron> all = new ArrayList<>(cronMap.size());
+        boolean replaced = false;
+        for (LabelCron old : cronMap.values()) {
+            if (old.getName().equals(oldName)) {
+                all.add(c);
+                replaced = true;
+            } else {
+                all.add(old);
+            }
+        }
+        if (!replaced) all.add(c);
+        updateCrons(all);
+        return validation;
+    }
+
+    /**
+     * @return
+     *      false if there is no cron with this name.
+     */
+    public synchronized boolean removeCron(final String name) {
+        return !applyCronChanges(Collections.emptyList(), Collections.singletonMap(name, 0L)).getDeleted().isEmpty();
+    }
+
+    /**
+     * Creates, updates and deletes single crons in O(changed crons): the other crons are neither compared, validated,
+     * rescheduled nor saved. New crons are appended, updated crons keep their position.
+     *
+     * A version other than 0 is checked against the current cron (optimistic locking), 0 changes the cron whatever its
+     * version is. Nothing is applied if a cron is invalid, a version does not match or a deleted cron does not exist.
+     *
+     * @param upserts
+     *      Crons to create or update, {@link LabelCron#getVersion()} is the version the change is based on.
+     * @param deletes
+     *      Crons to delete, by name with the expected version.
+     * @return
+     *      What was (or would have been) changed.
+     */
+    public synchronized CronChanges applyCronChanges(final Collection<LabelCron> upserts, final Map<String, Long> deletes) {
+        final CronChanges result = new CronChanges();
+        final List<LabelCron> candidates = new ArrayList<>();
+        final Set<String> names = new HashSet<>();
+        for (LabelCron c : upserts) {
+            final LabelCron old = c.getName() == null ? null : cronMap.get(c.getName());
+            if (c.getName() != null && (!names.add(c.getName()) || deletes.containsKey(c.getName()))) {
+                result.getInvalid().put(c.getName(), "Cron is changed twice");
+            } else if (c.getVersion() != 0 && (old == null || old.getVersion() != c.getVersion())) {
+                result.getConflicts().put(c.getName(), "Expected version " + c.getVersion() + " but is " + (old == null ? "missing" : old.getVersion()));
+            } else if (old != null && old.sameDefinition(c)) {
+                result.getUnchanged().add(c.getName());
+            } else {
+                candidates.add(c);
+            }
+        }
+        for (Map.Entry<String, Long> d : deletes.entrySet()) {
+            final LabelCron old = cronMap.get(d.getKey());
+            if (old == null) {
+                result.getMissing().add(d.getKey());
+            } else if (d.getValue() != null && d.getValue() != 0 && old.getVersion() != d.getValue()) {
+                result.getConflicts().put(d.getKey(), "Expected version " + d.getValue() + " but is " + old.getVersion());
+            }
+        }
+        final Set<LabelCron> valid = validate(candidates);
+        for (LabelCron c : candidates) {
+            if (!valid.contains(c)) {
+                result.getInvalid().put(String.valueOf(c.getName()), Util.fixNull(LabelCron.getLabelCronFormValidation(c).getMessage()));
             }
         }
-        LOGGER.finest("All valid crons: " + allCrons);
-        crons.clear();
-        crons.addAll(allCrons);
-        if (crons.isEmpty()) LOGGER.finest(json.toString());
+        if (!result.isApplied()) {
+            result.getUnchanged().clear();
+            return result;
+        }
+        for (LabelCron c : candidates) {
+            final LabelCron old = cronMap.put(c.getName(), c);
+            c.setVersion(old == null ? 1 : old.getVersion() + 1);
+            (old == null ? result.getCreated() : result.getUpdated()).add(c.getName());
+        }
+        for (String name : deletes.keySet()) {
+            cronMap.remove(name);
+            result.getDeleted().add(name);
+        }
+        LOGGER.finest("Applied cron changes: " + result);
+        if (!candidates.isEmpty() || !deletes.isEmpty()) {
+            schedule.apply(candidates, deletes.keySet(), System.currentTimeMillis());
+            try {
+                final int files = getCronStore().update(candidates, deletes.keySet());
+                LOGGER.log(Level.FINE, "Saved cron changes, " + files + " files changed");
+            } catch (IOException ex) {
+                LOGGER.log(Level.SEVERE, "Unable to save crons!", ex);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Replaces the crons with the given ones, diffed by name. Crons with an unchanged definition keep their object,
+     * so their parsed cron, resolved types and schedule entry stay as they are. Only new and changed crons are
+     * validated (in parallel), scheduled and saved, invalid ones are dropped. Every change bumps the version of the
+     * cron.
+     *
+     * @param submitted
+     *      The crons in configuration order.
+     * @return
+     *      The crons that were added or changed.
+     */
+    public synchronized List<LabelCron> updateCrons(final List<LabelCron> submitted) {
+        final Map<String, LabelCron> current = cronMap;
+        final List<LabelCron> candidates = new ArrayList<>();
+        for (LabelCron c : submitted) {
+            final LabelCron old = current.get(c.getName());
+            if (old == null || !old.sameDefinition(c)) candidates.add(c);
+        }
+        final Set<LabelCron> valid = validate(candidates);
+        final LinkedHashMap<String, LabelCron> allCrons = new LinkedHashMap<>();
+        final List<LabelCron> changed = new ArrayList<>();
+        for (LabelCron c : submitted) {
+            final LabelCron old = current.get(c.getName());
+            if (old != null && old.sameDefinition(c)) {
+                allCrons.putIfAbsent(old.getName(), old);
+            } else if (valid.contains(c) && allCrons.putIfAbsent(c.getName(), c) == null) {
+                c.setVersion(old == null ? 1 : old.getVersion() + 1);
+                changed.add(c);
+            }
+        }
+        final List<String> removed = new ArrayList<>();
+        for (String name : current.keySet()) {
+            if (!allCrons.containsKey(name)) removed.add(name);
+        }
+        LOGGER.finest("Changed crons: " + changed + ", removed crons: " + removed);
+        cronMap = allCrons;
+        schedule.update(new ArrayList<>(allCrons.values()), changed, removed, System.currentTimeMillis());
+        saveCrons(changed);
+        return changed;
+    }
+
+    /**
+     * Validates the crons in parallel on the {@link #getApplyPool()}.
+     *
+     * @return
+     *      The valid crons, by identity.
+     */
+    private Set<LabelCron> validate(final List<LabelCron> candidates) {
+        final Set<LabelCron> valid = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (candidates.size() <= 1) {
+            candidates.stream().filter(LabelCron::isLabelCronValid).forEach(valid::add);
+            return valid;
+        }
+        final List<Future<Boolean>> futures = new ArrayList<>(candidates.size());
+        for (LabelCron c : candidates) {
+            futures.add(getApplyPool().submit(() -> LabelCron.isLabelCronValid(c)));
+        }
+        for (int i = 0; i < candidates.size(); i++) {
+            try {
+                if (futures.get(i).get()) valid.add(candidates.get(i));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                LOGGER.log(Level.WARNING, "Interrupted while validating crons, dropping the rest");
+                break;
+            } catch (ExecutionException ex) {
+                LOGGER.log(Level.WARNING, "Failed to validate cron " + candidates.get(i).getName(), ex.getCause());
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Moves crons found in the old single file configuration to the {@link CronStore}. If the store already exists
+     * (the migration was interrupted after writing it) the store wins.
+     */
+    private void migrateCrons() throws IOException {
+        if (crons == null) return;
+        if (!getCronStore().exists()) {
+            getCronStore().sync(crons);
+            LOGGER.log(Level.INFO, "Migrated " + crons.size() + " crons to " + getCronStoreDir());
+        }
+        crons = null;
         save();
     }
 
+    /**
+     * Writes the crons that changed since they were loaded or last saved, see {@link CronStore#sync(Collection)}.
+     */
+    public synchronized void saveCrons() {
+        saveCrons(cronMap.values());
+    }
+
+    private void saveCrons(final Collection<LabelCron> changed) {
+        try {
+            final int files = getCronStore().sync(cronMap.values(), changed);
+            LOGGER.log(Level.FINE, "Saved crons, " + files + " files changed");
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "Unable to save crons!", ex);
+        }
+    }
+
+    @Nonnull
+    protected File getCronStoreDir() {
+        return new File(Jenkins.getActiveInstance().getRootDir(), "label-manager");
+    }
+
+    protected synchronized CronStore getCronStore() {
+        if (cronStore == null) {
+            cronStore = new CronStore(getCronStoreDir());
+        }
+        return cronStore;
+    }
+
+    /**
+     * @return
+     *      The history of what every cron changed, kept in <i>$JENKINS_HOME/label-manager/history</i>.
+     */
+    public synchronized ExecutionHistory getHistory() {
+        if (history == null) {
+            history = new ExecutionHistory(new File(getCronStoreDir(), "history"));
+        }
+        return history;
+    }
+
     @Override
     public synchronized void save() {
         try {
@@ -81,8 +367,127 @@ public class LabelManagerPluginImpl extends Plugin {
         return new XmlFile(Jenkins.XSTREAM, f);
     }
 
-    public Collection<LabelCron> getCrons() {
-        return crons;
+    /**
+     * The watermarks change every tick, so they are kept apart from the configuration.
+     */
+    @Nonnull
+    protected XmlFile getWatermarksXml() {
+        File f = new File(Jenkins.getActiveInstance().getRootDir(), this.getClass().getName() + "-watermarks.xml");
+        return new XmlFile(Jenkins.XSTREAM, f);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Long> loadWatermarks() {
+        XmlFile f = getWatermarksXml();
+        if (!f.exists()) return null;
+        try {
+            return (Map<String, Long>) f.read();
+        } catch (IOException | ClassCastException ex) {
+            LOGGER.log(Level.WARNING, "Unable to load cron watermarks, missed executions will not be caught up!", ex);
+            return null;
+        }
+    }
+
+    /**
+     * Persists the last evaluated execution of every cron, if it changed since the last call.
+     *
+     * @return
+     *      true if the watermarks were written.
+     */
+    public boolean saveWatermarks() {
+        Map<String, Long> watermarks = schedule.getWatermarksIfChanged();
+        if (watermarks == null) return false;
+        try {
+            getWatermarksXml().write(watermarks);
+            return true;
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "Unable to save cron watermarks!", ex);
+            return false;
+        }
+    }
+
+    /**
+     * @return
+     *      A copy of all crons in configuration order.
+     */
+    public synchronized Collection<LabelCron> getCrons() {
+        return new ArrayList<>(cronMap.values());
+    }
+
+    public int getApplyThreads() {
+        return applyThreads;
+    }
+
+    public synchronized void setApplyThreads(int applyThreads) {
+        this.applyThreads = Math.max(1, applyThreads);
+        if (applyPool != null) {
+            // grow before shrinking so the core size never exceeds the maximum size
+            if (this.applyThreads > applyPool.getMaximumPoolSize()) {
+                applyPool.setMaximumPoolSize(this.applyThreads);
+                applyPool.setCorePoolSize(this.applyThreads);
+            } else {
+                applyPool.setCorePoolSize(this.applyThreads);
+                applyPool.setMaximumPoolSize(this.applyThreads);
+            }
+        }
+    }
+
+    /**
+     * Bounded pool the node changes of a tick are applied on and submitted crons are validated on, see
+     * {@link #getApplyThreads()}. Idle threads time out so the pool costs nothing between ticks.
+     */
+    public synchronized ExecutorService getApplyPool() {
+        if (applyPool == null) {
+            applyPool = new ThreadPoolExecutor(applyThreads, applyThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    new NamingThreadFactory(new DaemonThreadFactory(), "Label Manager apply"));
+            applyPool.allowCoreThreadTimeOut(true);
+        }
+        return applyPool;
+    }
+
+    @Override
+    public void stop() throws Exception {
+        synchronized (this) {
+            if (applyPool != null) {
+                applyPool.shutdown();
+                applyPool = null;
+            }
+            if (history != null) {
+                history.close();
+                history = null;
+            }
+        }
+        final LabelManagerPeriodicWork worker = LabelManagerPeriodicWork.get();
+        if (worker != null) {
+            worker.stop();
+        }
+        LeaseManager.shutdown();
+        super.stop();
+    }
+
+    public MisfirePolicy getMisfirePolicy() {
+        return misfirePolicy;
+    }
+
+    public void setMisfirePolicy(MisfirePolicy misfirePolicy) {
+        this.misfirePolicy = misfirePolicy == null ? MisfirePolicy.FIRE_ONCE : misfirePolicy;
+        schedule.setMisfirePolicy(this.misfirePolicy);
+    }
+
+    /**
+     * @return
+     *      Minutes between reconciliation passes, 0 if nodes are only changed when crons fire.
+     */
+    public int getReconcileInterval() {
+        return reconcileInterval;
+    }
+
+    public void setReconcileInterval(int reconcileInterval) {
+        this.reconcileInterval = Math.max(0, reconcileInterval);
+    }
+
+    public CronSchedule getSchedule() {
+        return schedule;
     }
 
     public static LabelManagerPluginImpl getInstance() {
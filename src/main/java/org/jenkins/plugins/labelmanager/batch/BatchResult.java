@@ -0,0 +1,49 @@
+package org.jenkins.plugins.labelmanager.batch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Per node outcomes of a committed {@link NodeBatch}, in the order the nodes were staged.
+ */
+public class BatchResult {
+
+    private final List<NodeResult> results;
+    private final int saves;
+
+    BatchResult(List<NodeResult> results, int saves) {
+        this.results = Collections.unmodifiableList(new ArrayList<>(results));
+        this.saves = saves;
+    }
+
+    /**
+     * @return
+     *      How often something was persisted by the commit: once for the resources and once for the nodes, each only
+     *      if they changed.
+     */
+    public int getSaves() {
+        return saves;
+    }
+
+    public List<NodeResult> getResults() {
+        return results;
+    }
+
+    public int getSuccessCount() {
+        int count = 0;
+        for (NodeResult r : results) {
+            if (r.isSuccess()) count++;
+        }
+        return count;
+    }
+
+    public int getFailureCount() {
+        return results.size() - getSuccessCount();
+    }
+
+    @Override
+    public String toString() {
+        return "Applied " + results.size() + " nodes, " + getFailureCount() + " failed: " + results;
+    }
+}
@@ -0,0 +1,197 @@
+package org.jenkins.plugins.labelmanager.batch;
+
+import hudson.BulkChange;
+import hudson.model.Label;
+import hudson.model.Node;
+import jenkins.model.Jenkins;
+import org.jenkins.plugins.labelmanager.index.LabelIndex;
+import org.jenkins.plugins.labelmanager.index.NodeIndex;
+import org.jenkins.plugins.labelmanager.metrics.LabelManagerMetrics;
+import org.jenkins.plugins.labelmanager.resources.ResourceManager;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Collects the label and executor changes of all crons run in a tick and applies them together.
+ *
+ * Changes are staged per node, so several crons touching the same node build on each other. {@link #commit()} then
+ * applies everything in memory inside a {@link BulkChange} and does one node list update, one label cache
+ * invalidation and one save, no matter how many nodes were changed. The {@link LabelIndex} is patched with the
+ * relabeled nodes only. Nodes can be applied in parallel, see {@link #commit(ExecutorService)}. A batch whose nodes
+ * already look like staged writes and saves nothing.
+ */
+public class NodeBatch {
+
+    private static final Logger LOGGER = Logger.getLogger(NodeBatch.class.getName());
+
+    private final Map<String, NodeChange> changes = new LinkedHashMap<>();
+    private ResourceBatch resources;
+
+    public NodeBatch() {
+    }
+
+    /**
+     * @param resourceManager
+     *      The manager resource changes are staged against instead of the registered one.
+     */
+    public NodeBatch(ResourceManager resourceManager) {
+        this.resources = new ResourceBatch(resourceManager);
+    }
+
+    /**
+     * Returns the pending change for the node, starting a new one if the node was not touched yet in this batch.
+     */
+    public NodeChange get(final Node node) {
+        return changes.computeIfAbsent(node.getNodeName(), n -> new NodeChange(node));
+    }
+
+    public Collection<NodeChange> getChanges() {
+        return Collections.unmodifiableCollection(changes.values());
+    }
+
+    /**
+     * @return
+     *      The resource changes of this batch, they are committed with the nodes.
+     */
+    public ResourceBatch getResources() {
+        if (resources == null) {
+            resources = new ResourceBatch(ResourceManager.get());
+        }
+        return resources;
+    }
+
+    public boolean isEmpty() {
+        return changes.isEmpty() && (resources == null || resources.isEmpty());
+    }
+
+    /**
+     * @return
+     *      true if committing would write to at least one node, see {@link NodeChange#isChanged()}.
+     */
+    public boolean hasNodeWrites() {
+        for (NodeChange change : changes.values()) {
+            if (change.isChanged()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Applies all staged changes one node after the other and persists them once.
+     *
+     * @throws IOException
+     *      if Jenkins could not be saved.
+     */
+    public BatchResult commit() throws IOException {
+        return commit(null);
+    }
+
+    /**
+     * Applies all staged changes and persists them once. Every node is applied by a single task, so the changes of a
+     * node keep their order while different nodes are applied in parallel on the given pool. The master is always
+     * applied on the calling thread: its setters save Jenkins and a {@link BulkChange} only covers the thread that
+     * started it, so only in memory updates of agents run on the pool.
+     *
+     * @param pool
+     *      Pool the nodes are applied on, or null to apply them on the calling thread.
+     * @return
+     *      The outcome of every node in this batch.
+     * @throws IOException
+     *      if Jenkins could not be saved.
+     */
+    public BatchResult commit(final ExecutorService pool) throws IOException {
+        final int resourceSaves = commitResources();
+        if (changes.isEmpty()) {
+            return new BatchResult(Collections.emptyList(), resourceSaves);
+        }
+        if (!hasNodeWrites()) {
+            final List<NodeResult> unchanged = new ArrayList<>(changes.size());
+            for (NodeChange change : changes.values()) {
+                unchanged.add(new NodeResult(change.getNodeName(), null, 0));
+            }
+            return new BatchResult(unchanged, resourceSaves);
+        }
+        final Jenkins instance = Jenkins.getActiveInstance();
+        final List<NodeChange> staged = new ArrayList<>(changes.values());
+        final NodeResult[] results = new NodeResult[staged.size()];
+        final BulkChange bc = new BulkChange(instance);
+        try {
+            final Map<Integer, Future<NodeResult>> futures = new LinkedHashMap<>();
+            for (int i = 0; i < staged.size(); i++) {
+                final NodeChange change = staged.get(i);
+                if (pool == null || change.getNode() instanceof Jenkins) {
+                    results[i] = apply(change);
+                } else {
+                    futures.put(i, pool.submit(() -> apply(change)));
+                }
+            }
+            for (Map.Entry<Integer, Future<NodeResult>> f : futures.entrySet()) {
+                results[f.getKey()] = f.getValue().get();
+            }
+            final long generation = NodeIndex.get().getGeneration();
+            instance.setNodes(instance.getNodes());
+            final List<Node> relabeled = new ArrayList<>();
+            for (NodeChange change : changes.values()) {
+                if (change.isLabelChanged()) relabeled.add(change.getNode());
+            }
+            LabelIndex.get().relabeled(relabeled, generation);
+            for (Label l : instance.getLabels()) {
+                l.reset();
+            }
+            bc.commit();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while applying node changes", ex);
+        } catch (ExecutionException ex) {
+            throw new IOException("Failed to apply node changes", ex.getCause());
+        } finally {
+            bc.abort();
+        }
+        final BatchResult result = new BatchResult(Arrays.asList(results), resourceSaves + 1);
+        LOGGER.log(Level.FINE, result.toString());
+        return result;
+    }
+
+    /**
+     * Resources are committed first, a failure is logged and does not keep the nodes from being applied.
+     *
+     * @return
+     *      1 if resources were saved, otherwise 0.
+     */
+    private int commitResources() {
+        if (resources == null || resources.isEmpty()) {
+            return 0;
+        }
+        try {
+            return resources.commit() > 0 ? 1 : 0;
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.log(Level.SEVERE, "Failed to set resource labels with an exception!", ex);
+            return 0;
+        }
+    }
+
+    private static NodeResult apply(final NodeChange change) {
+        final long startTime = System.currentTimeMillis();
+        final long startNanos = System.nanoTime();
+        Throwable error = null;
+        try {
+            change.apply();
+        } catch (Exception ex) {
+            LOGGER.log(Level.SEVERE, "Failed to apply changes to node (" + change.getNodeName() + ")!", ex);
+            error = ex;
+        }
+        LabelManagerMetrics.get().recordNodeApply(System.nanoTime() - startNanos, error == null);
+        return new NodeResult(change.getNodeName(), error, System.currentTimeMillis() - startTime);
+    }
+}
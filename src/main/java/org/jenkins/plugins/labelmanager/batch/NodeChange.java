@@ -0,0 +1,202 @@
+package org.jenkins.plugins.labelmanager.batch;
+
+import hudson.model.Node;
+import org.jenkins.plugins.labelmanager.executors.ExecutorReshaper;
+import org.jenkins.plugins.labelmanager.labels.LabelOp;
+import org.jenkins.plugins.labelmanager.labels.LabelSet;
+import org.jenkins.plugins.labelmanager.model.LabelCron;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pending label and executor changes for a single node. The staged values are only written to the node when the
+ * owning {@link NodeBatch} is committed.
+ *
+ * The crons staged for the node are fused into a single {@link LabelOp} in the order they were staged, staging does
+ * not compute any labels. The resulting labels are calculated once from the labels the node had when the batch
+ * started, so the node is written once no matter how many crons touched it.
+ */
+public class NodeChange {
+
+    private static final Logger LOGGER = Logger.getLogger(NodeChange.class.getName());
+
+    private final Node node;
+    private final String originalLabelString;
+    private final LabelSet originalLabels;
+    private final int originalNumberOfExecutors;
+    private LabelOp op = LabelOp.IDENTITY;
+    private LabelSet labels;
+    private Optional<Integer> numberOfExecutors = Optional.empty();
+    private final List<LabelCron> crons = new ArrayList<>();
+    private final List<Step> steps = new ArrayList<>();
+
+    NodeChange(Node node) {
+        this.node = node;
+        this.originalLabelString = node.getLabelString();
+        this.originalLabels = LabelSet.parse(originalLabelString);
+        this.originalNumberOfExecutors = node.getNumExecutors();
+        this.labels = originalLabels;
+    }
+
+    public Node getNode() {
+        return node;
+    }
+
+    public String getNodeName() {
+        return node.getNodeName();
+    }
+
+    public String getOriginalLabelString() {
+        return originalLabelString;
+    }
+
+    public LabelSet getOriginalLabels() {
+        return originalLabels;
+    }
+
+    /**
+     * @return
+     *      The labels including all changes staged so far in this batch.
+     */
+    public LabelSet getLabels() {
+        if (labels == null) {
+            labels = op.apply(originalLabels);
+        }
+        return labels;
+    }
+
+    /**
+     * @return
+     *      All label changes staged so far fused into one.
+     */
+    public LabelOp getOp() {
+        return op;
+    }
+
+    public String getLabelString() {
+        return getLabels().toLabelString();
+    }
+
+    /**
+     * Stages the label change of the cron after the changes staged before.
+     */
+    public void stage(final LabelCron c) {
+        final LabelOp before = op;
+        op = op.then(c.getLabelOp());
+        labels = null;
+        steps.add(new Step(c, originalLabels, before, op));
+        crons.add(c);
+    }
+
+    public int getOriginalNumberOfExecutors() {
+        return originalNumberOfExecutors;
+    }
+
+    public Optional<Integer> getNumberOfExecutors() {
+        return numberOfExecutors;
+    }
+
+    /**
+     * Stages the number of executors, it is attributed to the cron staged last.
+     */
+    public void setNumberOfExecutors(final int numberOfExecutors) {
+        if (!steps.isEmpty()) {
+            steps.get(steps.size() - 1).executors = numberOfExecutors;
+        }
+        this.numberOfExecutors = Optional.of(numberOfExecutors);
+    }
+
+    /**
+     * @return
+     *      The crons that changed this node, in the order they were staged.
+     */
+    public List<LabelCron> getCrons() {
+        return Collections.unmodifiableList(crons);
+    }
+
+    /**
+     * @return
+     *      What every cron changed on this node, in the order they were staged.
+     */
+    public List<Step> getSteps() {
+        return Collections.unmodifiableList(steps);
+    }
+
+    /**
+     * @return
+     *      true if the staged labels differ from the node's labels, the order of the labels is ignored.
+     */
+    public boolean isLabelChanged() {
+        return !originalLabels.equals(getLabels());
+    }
+
+    /**
+     * @return
+     *      true if applying this change would write anything to the node.
+     */
+    public boolean isChanged() {
+        return isLabelChanged() || numberOfExecutors.isPresent() && numberOfExecutors.get() != originalNumberOfExecutors;
+    }
+
+    /**
+     * Writes the staged values to the node in memory. Persisting is left to {@link NodeBatch#commit()}.
+     */
+    void apply() throws Exception {
+        if (isLabelChanged()) {
+            LOGGER.log(Level.FINE, "Setting node (" + getNodeName() + ") labels from [" + originalLabelString + "] to [" + getLabelString() + "]");
+            node.setLabelString(getLabelString());
+        }
+        if (numberOfExecutors.isPresent()) {
+            LOGGER.log(Level.FINE, "Setting node (" + getNodeName() + ") executors from [" + node.getNumExecutors() + "] to [" + numberOfExecutors.get() + "]");
+            ExecutorReshaper.get().resize(node, numberOfExecutors.get());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getNodeName() + "[" + originalLabelString + "]->" + getLabels();
+    }
+
+    /**
+     * The labels before and after a single cron was staged, only calculated when asked for.
+     */
+    public static final class Step {
+        private final LabelCron cron;
+        private final LabelSet original;
+        private final LabelOp before;
+        private final LabelOp after;
+        private Integer executors;
+
+        Step(LabelCron cron, LabelSet original, LabelOp before, LabelOp after) {
+            this.cron = cron;
+            this.original = original;
+            this.before = before;
+            this.after = after;
+        }
+
+        public LabelCron getCron() {
+            return cron;
+        }
+
+        public LabelSet getBefore() {
+            return before.apply(original);
+        }
+
+        public LabelSet getAfter() {
+            return after.apply(original);
+        }
+
+        /**
+         * @return
+         *      The number of executors the cron set, or null if it did not set any.
+         */
+        public Integer getExecutors() {
+            return executors;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.jenkins.plugins.labelmanager.batch;
+
+/**
+ * Outcome of applying the staged changes of one node.
+ */
+public class NodeResult {
+
+    private final String nodeName;
+    private final Throwable error;
+    private final long duration;
+
+    NodeResult(String nodeName, Throwable error, long duration) {
+        this.nodeName = nodeName;
+        this.error = error;
+        this.duration = duration;
+    }
+
+    public String getNodeName() {
+        return nodeName;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    public Throwable getError() {
+        return error;
+    }
+
+    /**
+     * @return
+     *      Time it took to apply the changes in ms.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    @Override
+    public String toString() {
+        return nodeName + (isSuccess() ? " ok" : " failed (" + error + ")") + " in " + duration + "ms";
+    }
+}
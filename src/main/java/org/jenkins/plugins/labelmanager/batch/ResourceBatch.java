@@ -0,0 +1,85 @@
+package org.jenkins.plugins.labelmanager.batch;
+
+import org.jenkins.plugins.labelmanager.labels.LabelSet;
+import org.jenkins.plugins.labelmanager.resources.ResourceManager;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Label changes of all resources touched in a tick. The labels of all resources are read once when the first
+ * resource is staged and everything that changed is handed to the {@link ResourceManager} in a single call.
+ */
+public class ResourceBatch {
+
+    private static final Logger LOGGER = Logger.getLogger(ResourceBatch.class.getName());
+
+    private final ResourceManager manager;
+    private Map<String, LabelSet> original;
+    private final Map<String, LabelSet> staged = new LinkedHashMap<>();
+
+    public ResourceBatch(ResourceManager manager) {
+        this.manager = manager;
+    }
+
+    public ResourceManager getManager() {
+        return manager;
+    }
+
+    /**
+     * @return
+     *      The labels of the resource including the changes staged so far, or null if there is no such resource.
+     */
+    public LabelSet getLabels(final String name) {
+        final LabelSet labels = staged.get(name);
+        if (labels != null) return labels;
+        return original().get(name);
+    }
+
+    public void setLabels(final String name, final LabelSet labels) {
+        staged.put(name, labels);
+    }
+
+    public boolean isEmpty() {
+        return staged.isEmpty();
+    }
+
+    /**
+     * Writes all changed resources at once.
+     *
+     * @return
+     *      The number of resources that changed.
+     * @throws IOException
+     *      if the resources could not be saved.
+     */
+    public int commit() throws IOException {
+        if (staged.isEmpty()) return 0;
+        final Map<String, String> changed = new LinkedHashMap<>();
+        for (Map.Entry<String, LabelSet> e : staged.entrySet()) {
+            if (!e.getValue().equals(original().get(e.getKey()))) {
+                changed.put(e.getKey(), e.getValue().toLabelString());
+            }
+        }
+        if (!changed.isEmpty()) {
+            manager.setLabels(changed);
+            LOGGER.log(Level.FINE, "Relabeled " + changed.size() + " resources");
+        }
+        return changed.size();
+    }
+
+    private Map<String, LabelSet> original() {
+        if (original == null) {
+            original = new HashMap<>();
+            if (manager != null) {
+                for (Map.Entry<String, String> e : manager.getLabels().entrySet()) {
+                    original.put(e.getKey(), LabelSet.parse(e.getValue()));
+                }
+            }
+        }
+        return original;
+    }
+}
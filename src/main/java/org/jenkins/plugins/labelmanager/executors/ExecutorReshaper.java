@@ -0,0 +1,178 @@
+package org.jenkins.plugins.labelmanager.executors;
+
+import hudson.model.Api;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.model.Slave;
+import jenkins.model.Jenkins;
+import org.jenkins.plugins.labelmanager.LabelManagerPeriodicWork;
+import org.jenkins.plugins.labelmanager.batch.NodeBatch;
+import org.jenkins.plugins.labelmanager.model.type.NodeType;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+import org.kohsuke.stapler.interceptor.RequirePOST;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Changes the number of executors of nodes, including the master.
+ *
+ * Target counts can be requested at any time with {@link #request(String, int)}, they are staged into the
+ * {@link NodeBatch} of the next worker tick and committed with all other node changes of that tick, so Jenkins updates
+ * its computers once for all resized nodes. {@link #resize(Node, int)} only changes the configured count of the node:
+ * when the computers are updated, missing executors are added, idle surplus executors stop right away and busy surplus
+ * executors keep running their build and are removed when it finishes.
+ *
+ * A resize holds the lock of the node's stripe, see {@link #lockFor(Node)}, so it never races another resize of the
+ * same node, e.g. {@link org.jenkins.plugins.labelmanager.utils.JenkinsUtils#setNumExecutors(Node, int)} and a batch
+ * commit, while nodes in different stripes are resized in parallel. The master is resized on the committing thread
+ * inside the batch's {@link hudson.BulkChange}, see {@link NodeBatch#commit(java.util.concurrent.ExecutorService)}.
+ *
+ * <i>executors/api/json</i> shows the pending targets and the draining nodes, <i>executors/request</i> (POST,
+ * <i>node</i> and <i>executors</i>) requests a target.
+ */
+@ExportedBean(defaultVisibility = 999)
+public class ExecutorReshaper {
+
+    private static final Logger LOGGER = Logger.getLogger(ExecutorReshaper.class.getName());
+
+    private static final ExecutorReshaper INSTANCE = new ExecutorReshaper();
+
+    public static final int STRIPES = 64;
+
+    private final Object[] locks = new Object[STRIPES];
+    private final ConcurrentHashMap<String, Integer> pending = new ConcurrentHashMap<>();
+
+    ExecutorReshaper() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    public static ExecutorReshaper get() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return
+     *      The lock of the node's stripe, held by {@link #resize(Node, int)}. Callers that save the node right after
+     *      resizing it hold it across both.
+     */
+    public Object lockFor(final Node node) {
+        return locks[(nameOf(node).hashCode() & Integer.MAX_VALUE) % STRIPES];
+    }
+
+    private static String nameOf(final Node node) {
+        return node instanceof Jenkins ? NodeType.MASTER_NODE : node.getNodeName();
+    }
+
+    /**
+     * Requests a number of executors for a node, replacing an earlier request for the same node. When the worker is
+     * event driven a run is triggered, otherwise the request is applied by the next tick.
+     *
+     * @param nodeName
+     *      Name of the node, {@link NodeType#MASTER_NODE} for the master.
+     */
+    public void request(final String nodeName, final int executors) {
+        if (executors < 0) {
+            throw new IllegalArgumentException("Number of executors must not be negative: " + executors);
+        }
+        pending.put(nodeName, executors);
+        final LabelManagerPeriodicWork worker = LabelManagerPeriodicWork.get();
+        if (LabelManagerPeriodicWork.EVENT_DRIVEN && worker != null) {
+            worker.doRun();
+        }
+    }
+
+    /**
+     * Moves all requested targets into the batch. Requests for nodes that do not exist anymore are dropped.
+     */
+    public void stage(final NodeBatch batch) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        final Jenkins instance = Jenkins.getActiveInstance();
+        for (String name : pending.keySet()) {
+            final Integer executors = pending.remove(name);
+            if (executors == null) continue;
+            final Node node = NodeType.MASTER_NODE.equals(name) ? instance : instance.getNode(name);
+            if (node == null) {
+                LOGGER.log(Level.WARNING, "Node (" + name + ") does not exist anymore, dropping its executor request");
+                continue;
+            }
+            batch.get(node).setNumberOfExecutors(executors);
+        }
+    }
+
+    /**
+     * Sets the configured number of executors of the node. Its computer is only updated with the next update of the
+     * node list, e.g. by {@link NodeBatch#commit()}.
+     *
+     * @return
+     *      false if the node already had that many executors.
+     * @throws IOException
+     *      if the node cannot be resized or the master could not be saved.
+     */
+    public boolean resize(final Node node, final int executors) throws IOException {
+        synchronized (lockFor(node)) {
+            if (node.getNumExecutors() == executors) {
+                return false;
+            }
+            if (node instanceof Jenkins) {
+                ((Jenkins) node).setNumExecutors(executors);
+            } else if (node instanceof Slave) {
+                ((Slave) node).setNumExecutors(executors);
+            } else {
+                throw new IOException("Cannot resize node (" + nameOf(node) + ") of type " + node.getClass().getName());
+            }
+            return true;
+        }
+    }
+
+    /**
+     * @return
+     *      Requested targets not staged yet, by node name.
+     */
+    @Exported
+    public Map<String, Integer> getPending() {
+        return new TreeMap<>(pending);
+    }
+
+    /**
+     * @return
+     *      Executors still running a build above the configured count, by node name.
+     */
+    @Exported
+    public Map<String, Integer> getDraining() {
+        final Map<String, Integer> draining = new TreeMap<>();
+        for (Computer c : Jenkins.getActiveInstance().getComputers()) {
+            final int surplus = c.getExecutors().size() - c.getNumExecutors();
+            if (surplus > 0) {
+                draining.put(c instanceof Jenkins.MasterComputer ? NodeType.MASTER_NODE : c.getName(), surplus);
+            }
+        }
+        return draining;
+    }
+
+    @RequirePOST
+    public HttpResponse doRequest(@QueryParameter String node, @QueryParameter int executors) {
+        Jenkins.getActiveInstance().checkPermission(Jenkins.ADMINISTER);
+        if (node == null || node.trim().isEmpty() || executors < 0) {
+            return HttpResponses.error(400, "Parameters node and executors (not negative) are required");
+        }
+        request(node.trim(), executors);
+        return HttpResponses.ok();
+    }
+
+    public Api getApi() {
+        return new Api(this);
+    }
+}
@@ -0,0 +1,317 @@
+package org.jenkins.plugins.labelmanager.executors;
+
+import hudson.Extension;
+import hudson.model.Computer;
+import hudson.model.Executor;
+import hudson.model.Node;
+import hudson.model.OneOffExecutor;
+import hudson.model.Queue;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.labels.LabelAtom;
+import hudson.model.listeners.RunListener;
+import jenkins.model.Jenkins;
+import jenkins.util.Timer;
+import org.jenkins.plugins.labelmanager.model.type.NodeType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Live number of busy executors per node and per label, kept up to date by a {@link RunListener} instead of polling
+ * {@link Computer#countBusy()} on every check.
+ *
+ * {@link #whenNodeIdle(String)}, {@link #whenLabelIdle(String)} and {@link #whenAllIdle()} return a future that is
+ * completed once the builds are done and the executors are idle, callers wait on it with their own timeout and cancel
+ * it when they give up. A future is completed after the tracker released its lock, so code chained to it may call back
+ * into the tracker. A build counts for the node it started on and the labels that node had when it started, so
+ * removing a label from a busy node still waits for its builds.
+ *
+ * Executors can also be busy with work that is not a build, e.g. the placeholder task of a Pipeline <i>node</i> block,
+ * and no build event tells when that work ends. So a future is only completed when the executors are idle as well,
+ * checked when it is requested and whenever a build finishes, and every {@link #RECHECK_MILLIS} while futures wait.
+ * Like {@link Computer#countBusy()} only regular executors are counted, flyweight tasks are not.
+ */
+public class IdleTracker {
+
+    private static final IdleTracker INSTANCE = new IdleTracker();
+
+    /**
+     * How often waiting futures check the executors,
+     * <i>-Dorg.jenkins.plugins.labelmanager.executors.IdleTracker.recheckMillis</i>.
+     */
+    public static final long RECHECK_MILLIS =
+            Math.max(10, Long.getLong(IdleTracker.class.getName() + ".recheckMillis", 1000));
+
+    private static final String ALL = "";
+    private static final String NODE = "node:";
+    private static final String LABEL = "label:";
+
+    private final Map<Run<?, ?>, Busy> running = new IdentityHashMap<>();
+    private final Map<String, Integer> counts = new HashMap<>();
+    private final Map<String, List<CompletableFuture<Void>>> waiters = new HashMap<>();
+    private boolean seeded;
+    private ScheduledFuture<?> recheck;
+
+    public static IdleTracker get() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param nodeName
+     *      Name of the node, {@link NodeType#MASTER_NODE} for the master.
+     * @return
+     *      Completes once no build is running on the node and its executors are idle, right away if they are.
+     */
+    public CompletableFuture<Void> whenNodeIdle(final String nodeName) {
+        return whenIdle(NODE + nodeName);
+    }
+
+    /**
+     * @return
+     *      Completes once no build is running on a node with the label and their executors are idle, right away if
+     *      they are.
+     */
+    public CompletableFuture<Void> whenLabelIdle(final String label) {
+        return whenIdle(LABEL + label);
+    }
+
+    /**
+     * @return
+     *      Completes once no build is running and all executors are idle.
+     */
+    public CompletableFuture<Void> whenAllIdle() {
+        return whenIdle(ALL);
+    }
+
+    /**
+     * @return
+     *      Busy executors of the node, counting running builds and other work like Pipeline <i>node</i> blocks.
+     */
+    public int getBusy(final String nodeName) {
+        final int builds;
+        synchronized (this) {
+            seed();
+            builds = counts.getOrDefault(NODE + nodeName, 0);
+        }
+        return Math.max(builds, busyExecutors(NODE + nodeName));
+    }
+
+    public int getBusyForLabel(final String label) {
+        final int builds;
+        synchronized (this) {
+            seed();
+            builds = counts.getOrDefault(LABEL + label, 0);
+        }
+        return Math.max(builds, busyExecutors(LABEL + label));
+    }
+
+    private CompletableFuture<Void> whenIdle(final String key) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        synchronized (this) {
+            seed();
+            waiters.computeIfAbsent(key, k -> new ArrayList<>()).add(future);
+        }
+        future.whenComplete((v, ex) -> {
+            if (ex != null) {
+                // cancelled by a caller that stopped waiting
+                removeWaiter(key, future);
+            }
+        });
+        recheck();
+        return future;
+    }
+
+    private synchronized void removeWaiter(final String key, final CompletableFuture<Void> future) {
+        final List<CompletableFuture<Void>> list = waiters.get(key);
+        if (list != null && list.remove(future) && list.isEmpty()) {
+            waiters.remove(key);
+        }
+    }
+
+    /**
+     * Completes the futures of all keys without running builds whose executors are idle. While futures are left,
+     * checks again every {@link #RECHECK_MILLIS}.
+     */
+    void recheck() {
+        final List<String> candidates = new ArrayList<>();
+        synchronized (this) {
+            for (String key : waiters.keySet()) {
+                if (counts.getOrDefault(key, 0) == 0) {
+                    candidates.add(key);
+                }
+            }
+        }
+        // the executors are checked without holding the lock of the tracker
+        final List<String> idleKeys = new ArrayList<>();
+        for (String key : candidates) {
+            if (busyExecutors(key) == 0) {
+                idleKeys.add(key);
+            }
+        }
+        final List<CompletableFuture<Void>> idle = new ArrayList<>();
+        synchronized (this) {
+            for (String key : idleKeys) {
+                // a build may have started in the meantime
+                if (counts.getOrDefault(key, 0) == 0) {
+                    final List<CompletableFuture<Void>> w = waiters.remove(key);
+                    if (w != null) {
+                        idle.addAll(w);
+                    }
+                }
+            }
+            if (waiters.isEmpty()) {
+                if (recheck != null) {
+                    recheck.cancel(false);
+                    recheck = null;
+                }
+            } else if (recheck == null) {
+                recheck = Timer.get().scheduleWithFixedDelay(this::recheck, RECHECK_MILLIS, RECHECK_MILLIS,
+                        TimeUnit.MILLISECONDS);
+            }
+        }
+        for (CompletableFuture<Void> f : idle) {
+            f.complete(null);
+        }
+    }
+
+    /**
+     * @return
+     *      Executors of the computers the key stands for that are busy with anything but a finished build, which may
+     *      still be shown until its executor is released.
+     */
+    private static int busyExecutors(final String key) {
+        final Jenkins instance = Jenkins.getInstance();
+        if (instance == null) return 0;
+        final List<Computer> computers = new ArrayList<>();
+        if (key.equals(ALL)) {
+            Collections.addAll(computers, instance.getComputers());
+        } else if (key.startsWith(NODE)) {
+            final String name = key.substring(NODE.length());
+            final Computer c = NodeType.MASTER_NODE.equals(name) ? instance.toComputer() : instance.getComputer(name);
+            if (c != null) computers.add(c);
+        } else if (key.startsWith(LABEL)) {
+            final LabelAtom label = instance.getLabelAtom(key.substring(LABEL.length()));
+            if (label != null) {
+                for (Node n : label.getNodes()) {
+                    final Computer c = n.toComputer();
+                    if (c != null) computers.add(c);
+                }
+            }
+        }
+        int busy = 0;
+        for (Computer c : computers) {
+            for (Executor e : c.getExecutors()) {
+                if (!e.isBusy()) continue;
+                final Queue.Executable executable = e.getCurrentExecutable();
+                if (executable instanceof Run && !((Run<?, ?>) executable).isLogUpdated()) continue;
+                busy++;
+            }
+        }
+        return busy;
+    }
+
+    /**
+     * @return
+     *      Number of futures not completed or cancelled yet.
+     */
+    public synchronized int getWaiterCount() {
+        int count = 0;
+        for (List<CompletableFuture<Void>> list : waiters.values()) {
+            count += list.size();
+        }
+        return count;
+    }
+
+    /**
+     * Picks up the builds that were already running before the first event, e.g. when the plugin was installed.
+     */
+    private void seed() {
+        if (seeded) return;
+        seeded = true;
+        final Jenkins instance = Jenkins.getInstance();
+        if (instance == null) return;
+        for (Computer c : instance.getComputers()) {
+            for (Executor e : c.getExecutors()) {
+                final Queue.Executable executable = e.getCurrentExecutable();
+                // a finalized build may still be shown until its executor is released
+                if (executable instanceof Run && ((Run<?, ?>) executable).isLogUpdated()) {
+                    started((Run<?, ?>) executable, e);
+                }
+            }
+        }
+    }
+
+    synchronized void started(final Run<?, ?> run, final Executor executor) {
+        seed();
+        if (executor == null || executor instanceof OneOffExecutor || running.containsKey(run)) {
+            return;
+        }
+        final Computer c = executor.getOwner();
+        final Node node = c.getNode();
+        final List<String> keys = new ArrayList<>();
+        keys.add(ALL);
+        keys.add(NODE + (c instanceof Jenkins.MasterComputer ? NodeType.MASTER_NODE : c.getName()));
+        final Set<LabelAtom> labels = node == null ? Collections.<LabelAtom>emptySet() : node.getAssignedLabels();
+        for (LabelAtom l : labels) {
+            keys.add(LABEL + l.getName());
+        }
+        running.put(run, new Busy(keys));
+        for (String key : keys) {
+            counts.merge(key, 1, Integer::sum);
+        }
+    }
+
+    void finished(final Run<?, ?> run) {
+        synchronized (this) {
+            final Busy busy = running.remove(run);
+            if (busy == null) {
+                return;
+            }
+            for (String key : busy.keys) {
+                if (counts.merge(key, -1, Integer::sum) <= 0) {
+                    counts.remove(key);
+                }
+            }
+        }
+        recheck();
+    }
+
+    private static final class Busy {
+        private final List<String> keys;
+
+        Busy(List<String> keys) {
+            this.keys = keys;
+        }
+    }
+
+    /**
+     * Builds start and finish on their executor thread, so the executor is known when they start. A build is only
+     * done once it is finalized, its executor becomes idle right after.
+     */
+    @Extension
+    public static class Listener extends RunListener<Run<?, ?>> {
+        @Override
+        public void onStarted(Run<?, ?> run, TaskListener listener) {
+            IdleTracker.get().started(run, run.getExecutor());
+        }
+
+        @Override
+        public void onFinalized(Run<?, ?> run) {
+            IdleTracker.get().finished(run);
+        }
+
+        @Override
+        public void onDeleted(Run<?, ?> run) {
+            IdleTracker.get().finished(run);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package org.jenkins.plugins.labelmanager.history;
+
+import hudson.model.Api;
+import org.kohsuke.stapler.Stapler;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Which cron changed which node and when. The newest records are kept in a ring buffer of {@link #getCapacity()}
+ * records, stored as primitive columns with cron, node and label strings replaced by ids, and are appended to a
+ * {@link HistoryLog} on {@link #flush()}. The ring is flushed before unflushed records would be overwritten, so no
+ * record is lost. Ids are reference counted by the ring slots using them and reused once a string drops out of the
+ * ring, so the string table never holds more than four strings per slot.
+ *
+ * Queries answer from the ring first and only read the log for older records, see {@link #query(String, String, int)}.
+ * <i>history/?cron=X&amp;node=Y</i> renders them on the management page and <i>history/api/json</i> exports them.
+ */
+@ExportedBean(defaultVisibility = 999)
+public class ExecutionHistory {
+
+    private static final Logger LOGGER = Logger.getLogger(ExecutionHistory.class.getName());
+
+    public static final int DEFAULT_CAPACITY = 8192;
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+
+    private final HistoryLog log;
+    private final int capacity;
+    private final long[] scheduled;
+    private final long[] applied;
+    private final int[] crons;
+    private final int[] nodes;
+    private final int[] oldLabels;
+    private final int[] newLabels;
+    private final int[] executorDeltas;
+    private final byte[] outcomes;
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private final List<Integer> references = new ArrayList<>();
+    private final ArrayDeque<Integer> freeIds = new ArrayDeque<>();
+    private final long startSequence;
+    private long nextSequence;
+    private long flushedSequence;
+
+    public ExecutionHistory(File dir) {
+        this(new HistoryLog(dir), DEFAULT_CAPACITY);
+    }
+
+    public ExecutionHistory(HistoryLog log, int capacity) {
+        this.log = log;
+        this.capacity = Math.max(1, capacity);
+        this.scheduled = new long[this.capacity];
+        this.applied = new long[this.capacity];
+        this.crons = new int[this.capacity];
+        this.nodes = new int[this.capacity];
+        this.oldLabels = new int[this.capacity];
+        this.newLabels = new int[this.capacity];
+        this.executorDeltas = new int[this.capacity];
+        this.outcomes = new byte[this.capacity];
+        long last = -1;
+        try {
+            last = log.getLastSequence();
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Unable to read the execution history, starting a new one", ex);
+        }
+        this.startSequence = last + 1;
+        this.nextSequence = startSequence;
+        this.flushedSequence = startSequence;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Records what a cron changed on a node.
+     *
+     * @param scheduledTime
+     *      Time the cron was scheduled for.
+     * @param appliedTime
+     *      Time the change was applied to the node.
+     */
+    public synchronized void record(String cron, String node, String before, String after, int executorDelta,
+                                    long scheduledTime, long appliedTime, ExecutionRecord.Outcome outcome) {
+        if (nextSequence - flushedSequence >= capacity) {
+            flush();
+        }
+        final int slot = (int) (nextSequence % capacity);
+        if (nextSequence - capacity >= startSequence) {
+            // the slot holds a flushed record of this run
+            release(crons[slot]);
+            release(nodes[slot]);
+            release(oldLabels[slot]);
+            release(newLabels[slot]);
+        }
+        scheduled[slot] = scheduledTime;
+        applied[slot] = appliedTime;
+        crons[slot] = intern(cron);
+        nodes[slot] = intern(node);
+        oldLabels[slot] = intern(before);
+        newLabels[slot] = intern(after);
+        executorDeltas[slot] = executorDelta;
+        outcomes[slot] = (byte) outcome.ordinal();
+        nextSequence++;
+    }
+
+    private int intern(String s) {
+        final String value = s == null ? "" : s;
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = freeIds.poll();
+            if (id == null) {
+                id = strings.size();
+                strings.add(value);
+                references.add(0);
+            } else {
+                strings.set(id, value);
+            }
+            ids.put(value, id);
+        }
+        references.set(id, references.get(id) + 1);
+        return id;
+    }
+
+    private void release(int id) {
+        final int left = references.get(id) - 1;
+        references.set(id, left);
+        if (left == 0) {
+            ids.remove(strings.get(id));
+            strings.set(id, null);
+            freeIds.add(id);
+        }
+    }
+
+    /**
+     * @return
+     *      Number of distinct strings the ring refers to.
+     */
+    public synchronized int getStringCount() {
+        return ids.size();
+    }
+
+    /**
+     * Appends the records not written yet to the log.
+     */
+    public synchronized void flush() {
+        try {
+            for (long seq = Math.max(flushedSequence, nextSequence - capacity); seq < nextSequence; seq++) {
+                final int slot = (int) (seq % capacity);
+                log.append(seq, scheduled[slot], applied[slot], strings.get(crons[slot]), strings.get(nodes[slot]),
+                        strings.get(oldLabels[slot]), strings.get(newLabels[slot]), executorDeltas[slot], outcomes[slot]);
+            }
+            log.flush();
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "Unable to write the execution history, records up to " + nextSequence + " are lost!", ex);
+        }
+        flushedSequence = nextSequence;
+    }
+
+    public synchronized void close() {
+        flush();
+        try {
+            log.close();
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Unable to close the execution history", ex);
+        }
+    }
+
+    /**
+     * @param cron
+     *      Name of the cron, null or empty for all crons.
+     * @param node
+     *      Name of the node, null or empty for all nodes.
+     * @param limit
+     *      Maximum number of records.
+     * @return
+     *      The newest matching records, newest first.
+     */
+    public List<ExecutionRecord> query(String cron, String node, int limit) {
+        final String c = cron == null || cron.isEmpty() ? null : cron;
+        final String n = node == null || node.isEmpty() ? null : node;
+        final List<ExecutionRecord> result = new ArrayList<>();
+        final long oldestInRing;
+        synchronized (this) {
+            oldestInRing = Math.max(startSequence, nextSequence - capacity);
+            final int cronId = c == null ? -1 : ids.getOrDefault(c, -2);
+            final int nodeId = n == null ? -1 : ids.getOrDefault(n, -2);
+            for (long seq = nextSequence - 1; seq >= oldestInRing && result.size() < limit; seq--) {
+                final int slot = (int) (seq % capacity);
+                if ((cronId == -1 || crons[slot] == cronId) && (nodeId == -1 || nodes[slot] == nodeId)) {
+                    result.add(new ExecutionRecord(seq, scheduled[slot], applied[slot], strings.get(crons[slot]),
+                            strings.get(nodes[slot]), strings.get(oldLabels[slot]), strings.get(newLabels[slot]),
+                            executorDeltas[slot], ExecutionRecord.Outcome.values()[outcomes[slot]]));
+                }
+            }
+            if (result.size() >= limit) {
+                return result;
+            }
+        }
+        // everything older than the ring has been flushed already
+        try {
+            result.addAll(log.query(c, n, limit - result.size(), oldestInRing));
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Unable to read the execution history", ex);
+        }
+        return result;
+    }
+
+    /**
+     * @return
+     *      The records matching the <i>cron</i>, <i>node</i> and <i>limit</i> parameters of the current request, at
+     *      most {@link #MAX_LIMIT}.
+     */
+    @Exported
+    public List<ExecutionRecord> getRecords() {
+        final StaplerRequest req = Stapler.getCurrentRequest();
+        if (req == null) {
+            return query(null, null, DEFAULT_LIMIT);
+        }
+        int limit = DEFAULT_LIMIT;
+        try {
+            if (req.getParameter("limit") != null) limit = Integer.parseInt(req.getParameter("limit"));
+        } catch (NumberFormatException ex) {
+            limit = DEFAULT_LIMIT;
+        }
+        return query(req.getParameter("cron"), req.getParameter("node"), Math.max(1, Math.min(limit, MAX_LIMIT)));
+    }
+
+    public Api getApi() {
+        return new Api(this);
+    }
+}
@@ -0,0 +1,104 @@
+package org.jenkins.plugins.labelmanager.history;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.util.Date;
+
+/**
+ * What a single cron changed on a single node, as returned by {@link ExecutionHistory#query(String, String, int)}.
+ * Records are only created for query results, the history itself keeps them as columns of ids.
+ */
+@ExportedBean(defaultVisibility = 999)
+public class ExecutionRecord {
+
+    public enum Outcome {
+        /** The labels or executors of the node were changed. */
+        APPLIED,
+        /** The cron ran but the node already looked like that. */
+        UNCHANGED,
+        /** Applying the changes to the node failed. */
+        FAILED
+    }
+
+    private final long sequence;
+    private final long scheduledTime;
+    private final long appliedTime;
+    private final String cron;
+    private final String node;
+    private final String oldLabels;
+    private final String newLabels;
+    private final int executorDelta;
+    private final Outcome outcome;
+
+    ExecutionRecord(long sequence, long scheduledTime, long appliedTime, String cron, String node, String oldLabels,
+                    String newLabels, int executorDelta, Outcome outcome) {
+        this.sequence = sequence;
+        this.scheduledTime = scheduledTime;
+        this.appliedTime = appliedTime;
+        this.cron = cron;
+        this.node = node;
+        this.oldLabels = oldLabels;
+        this.newLabels = newLabels;
+        this.executorDelta = executorDelta;
+        this.outcome = outcome;
+    }
+
+    /**
+     * @return
+     *      Increases by one with every record, across restarts.
+     */
+    @Exported
+    public long getSequence() {
+        return sequence;
+    }
+
+    @Exported
+    public long getScheduledTime() {
+        return scheduledTime;
+    }
+
+    @Exported
+    public long getAppliedTime() {
+        return appliedTime;
+    }
+
+    public Date getAppliedDate() {
+        return new Date(appliedTime);
+    }
+
+    @Exported
+    public String getCron() {
+        return cron;
+    }
+
+    @Exported
+    public String getNode() {
+        return node;
+    }
+
+    @Exported
+    public String getOldLabels() {
+        return oldLabels;
+    }
+
+    @Exported
+    public String getNewLabels() {
+        return newLabels;
+    }
+
+    @Exported
+    public int getExecutorDelta() {
+        return executorDelta;
+    }
+
+    @Exported
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + cron + "@" + node + " [" + oldLabels + "]->[" + newLabels + "] " + outcome;
+    }
+}
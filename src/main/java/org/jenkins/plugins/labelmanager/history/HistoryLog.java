@@ -0,0 +1,292 @@
+package org.jenkins.plugins.labelmanager.history;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Append-only binary log of {@link ExecutionRecord}s, split into segments of about {@link #getMaxSegmentBytes()}.
+ * Only the newest {@link #getMaxSegments()} segments are kept.
+ *
+ * A segment is a sequence of entries: a string entry <i>('U', int id, int length, UTF-8 bytes)</i> defines an id the
+ * first time the string is used in the segment, a record entry <i>('R', long sequence, long scheduled, long applied,
+ * int cron, int node, int oldLabels, int newLabels, int executorDelta, byte outcome)</i> refers to the ids. Ids are
+ * local to a segment. A record and its strings are encoded completely before they are appended, so a failing record
+ * leaves no partial entry behind. Every segment can be read on its own and a truncated last entry, left by a crash,
+ * ends the segment. Queries stream the segments from the newest to the oldest and only keep the strings of one segment
+ * and the matching records in memory.
+ */
+public class HistoryLog {
+
+    private static final Logger LOGGER = Logger.getLogger(HistoryLog.class.getName());
+
+    public static final long DEFAULT_MAX_SEGMENT_BYTES = 4 * 1024 * 1024;
+    public static final int DEFAULT_MAX_SEGMENTS = 8;
+
+    private static final int UTF8_STRING = 'U';
+    private static final int RECORD = 'R';
+    private static final String SUFFIX = ".log";
+    /** Longest string accepted when reading, anything longer is taken for corruption. */
+    private static final int MAX_STRING_BYTES = 16 * 1024 * 1024;
+
+    private final File dir;
+    private final long maxSegmentBytes;
+    private final int maxSegments;
+    private DataOutputStream out;
+    private final Map<String, Integer> defined = new HashMap<>();
+    private final ByteArrayOutputStream entry = new ByteArrayOutputStream();
+    private final DataOutputStream entryOut = new DataOutputStream(entry);
+
+    public HistoryLog(File dir) {
+        this(dir, DEFAULT_MAX_SEGMENT_BYTES, DEFAULT_MAX_SEGMENTS);
+    }
+
+    public HistoryLog(File dir, long maxSegmentBytes, int maxSegments) {
+        this.dir = dir;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.maxSegments = Math.max(1, maxSegments);
+    }
+
+    public long getMaxSegmentBytes() {
+        return maxSegmentBytes;
+    }
+
+    public int getMaxSegments() {
+        return maxSegments;
+    }
+
+    /**
+     * Appends a record, the strings it refers to are defined first if the current segment does not know them yet.
+     * Starts a new segment if the current one is full. Nothing is guaranteed to be on disk before {@link #flush()}.
+     */
+    public synchronized void append(long sequence, long scheduled, long applied, String cron, String node, String oldLabels,
+                                    String newLabels, int executorDelta, byte outcome) throws IOException {
+        if (out == null || out.size() >= maxSegmentBytes) {
+            roll(sequence);
+        }
+        entry.reset();
+        final Map<String, Integer> added = new HashMap<>();
+        final int cronId = define(cron, added);
+        final int nodeId = define(node, added);
+        final int oldId = define(oldLabels, added);
+        final int newId = define(newLabels, added);
+        entryOut.writeByte(RECORD);
+        entryOut.writeLong(sequence);
+        entryOut.writeLong(scheduled);
+        entryOut.writeLong(applied);
+        entryOut.writeInt(cronId);
+        entryOut.writeInt(nodeId);
+        entryOut.writeInt(oldId);
+        entryOut.writeInt(newId);
+        entryOut.writeInt(executorDelta);
+        entryOut.writeByte(outcome);
+        entryOut.flush();
+        entry.writeTo(out);
+        defined.putAll(added);
+    }
+
+    /**
+     * @return
+     *      The id of the string in the current segment, a new one is encoded into the entry if it has none yet.
+     */
+    private int define(final String s, final Map<String, Integer> added) throws IOException {
+        final String value = s == null ? "" : s;
+        Integer id = defined.get(value);
+        if (id == null) id = added.get(value);
+        if (id == null) {
+            id = defined.size() + added.size();
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            entryOut.writeByte(UTF8_STRING);
+            entryOut.writeInt(id);
+            entryOut.writeInt(bytes.length);
+            entryOut.write(bytes);
+            added.put(value, id);
+        }
+        return id;
+    }
+
+    /**
+     * Closes the current segment and starts a new one named after the first sequence it will hold, deleting the oldest
+     * segments beyond {@link #getMaxSegments()}.
+     */
+    private void roll(long sequence) throws IOException {
+        close();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Could not create directory " + dir);
+        }
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(dir, String.format("%019d", sequence) + SUFFIX))));
+        defined.clear();
+        final List<File> segments = getSegments();
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            if (!segments.get(i).delete()) {
+                LOGGER.log(Level.WARNING, "Could not delete history segment " + segments.get(i));
+            }
+        }
+    }
+
+    public synchronized void flush() throws IOException {
+        if (out != null) out.flush();
+    }
+
+    public synchronized void close() throws IOException {
+        if (out != null) {
+            try {
+                out.close();
+            } finally {
+                out = null;
+            }
+        }
+    }
+
+    /**
+     * @return
+     *      The segments from the oldest to the newest.
+     */
+    List<File> getSegments() {
+        final File[] files = dir.listFiles((d, name) -> name.endsWith(SUFFIX));
+        if (files == null) {
+            return Collections.emptyList();
+        }
+        Arrays.sort(files);
+        return new ArrayList<>(Arrays.asList(files));
+    }
+
+    /**
+     * @return
+     *      The sequence of the last readable record, or -1 if there is none.
+     */
+    public synchronized long getLastSequence() throws IOException {
+        flush();
+        final List<File> segments = getSegments();
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            final long[] last = {-1};
+            read(segments.get(i), (sequence, e, strings) -> {
+                last[0] = sequence;
+                return false;
+            });
+            if (last[0] >= 0) return last[0];
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the newest records of a cron and/or node.
+     *
+     * @param cron
+     *      Name of the cron, null for all crons.
+     * @param node
+     *      Name of the node, null for all nodes.
+     * @param limit
+     *      Maximum number of records.
+     * @param beforeSequence
+     *      Only records with a lower sequence are returned.
+     * @return
+     *      The matching records, newest first.
+     */
+    public synchronized List<ExecutionRecord> query(String cron, String node, int limit, long beforeSequence) throws IOException {
+        flush();
+        final List<ExecutionRecord> result = new ArrayList<>();
+        final List<File> segments = getSegments();
+        for (int i = segments.size() - 1; i >= 0 && result.size() < limit; i--) {
+            final int need = limit - result.size();
+            final ArrayDeque<ExecutionRecord> matches = new ArrayDeque<>(Math.min(need, 1024));
+            read(segments.get(i), (sequence, e, strings) -> {
+                if (sequence >= beforeSequence) return false;
+                if (cron != null && !cron.equals(strings.get(e.cron))) return false;
+                if (node != null && !node.equals(strings.get(e.node))) return false;
+                matches.addLast(e.toRecord(sequence, strings));
+                if (matches.size() > need) matches.removeFirst();
+                return false;
+            });
+            for (Iterator<ExecutionRecord> it = matches.descendingIterator(); it.hasNext(); ) {
+                result.add(it.next());
+            }
+        }
+        return result;
+    }
+
+    private interface Visitor {
+        /**
+         * @return
+         *      true to stop reading.
+         */
+        boolean visit(long sequence, Entry entry, Map<Integer, String> strings);
+    }
+
+    /**
+     * Reusable holder of the fields of a record entry, so reading a segment only allocates for its strings and the
+     * records that are kept.
+     */
+    private static final class Entry {
+        long scheduled;
+        long applied;
+        int cron;
+        int node;
+        int oldLabels;
+        int newLabels;
+        int executorDelta;
+        byte outcome;
+
+        ExecutionRecord toRecord(long sequence, Map<Integer, String> strings) {
+            final ExecutionRecord.Outcome[] outcomes = ExecutionRecord.Outcome.values();
+            return new ExecutionRecord(sequence, scheduled, applied, strings.get(cron), strings.get(node),
+                    strings.get(oldLabels), strings.get(newLabels), executorDelta,
+                    outcome >= 0 && outcome < outcomes.length ? outcomes[outcome] : ExecutionRecord.Outcome.FAILED);
+        }
+    }
+
+    private static void read(File segment, Visitor visitor) throws IOException {
+        final Map<Integer, String> strings = new HashMap<>();
+        final Entry entry = new Entry();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment)))) {
+            int tag;
+            while ((tag = in.read()) >= 0) {
+                if (tag == UTF8_STRING) {
+                    final int id = in.readInt();
+                    final int length = in.readInt();
+                    if (length < 0 || length > MAX_STRING_BYTES) {
+                        LOGGER.log(Level.WARNING, "History segment " + segment + " is corrupt, ignoring the rest of it");
+                        return;
+                    }
+                    final byte[] bytes = new byte[length];
+                    in.readFully(bytes);
+                    strings.put(id, new String(bytes, StandardCharsets.UTF_8));
+                } else if (tag == RECORD) {
+                    final long sequence = in.readLong();
+                    entry.scheduled = in.readLong();
+                    entry.applied = in.readLong();
+                    entry.cron = in.readInt();
+                    entry.node = in.readInt();
+                    entry.oldLabels = in.readInt();
+                    entry.newLabels = in.readInt();
+                    entry.executorDelta = in.readInt();
+                    entry.outcome = in.readByte();
+                    if (visitor.visit(sequence, entry, strings)) return;
+                } else {
+                    LOGGER.log(Level.WARNING, "History segment " + segment + " is corrupt, ignoring the rest of it");
+                    return;
+                }
+            }
+        } catch (EOFException ex) {
+            // the last entry was not written completely
+        }
+    }
+}
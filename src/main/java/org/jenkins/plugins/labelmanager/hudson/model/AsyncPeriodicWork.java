@@ -3,11 +3,19 @@ package org.jenkins.plugins.labelmanager.hudson.model;
 import hudson.model.PeriodicWork;
 import hudson.model.TaskListener;
 import hudson.security.ACL;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
 import hudson.util.StreamTaskListener;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.Date;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 
 import jenkins.model.Jenkins;
@@ -16,7 +24,9 @@ import jenkins.model.Jenkins;
  * Duplicated code from <i>hudson.model.AsyncPeriodicWork</i> to reduce the log levels in {@link #doRun()} from INFO to
  * FINEST so the logs are not spammed.
  *
- * All other functionality is exactly the same as in the original class.
+ * Instead of starting a new thread for every run, all runs are executed on one long-lived thread. A run that is
+ * triggered while the previous one is still going is not aborted, exactly one catch-up run is queued instead and any
+ * further triggers are coalesced into it. The thread is only started by the first run and ends with {@link #stop()}.
  */
 public abstract class AsyncPeriodicWork extends PeriodicWork {
 
@@ -25,54 +35,173 @@ public abstract class AsyncPeriodicWork extends PeriodicWork {
      */
     public final String name;
 
-    private Thread thread;
+    private ScheduledExecutorService executor;
+    private boolean stopped;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicBoolean pending = new AtomicBoolean(false);
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong overruns = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private ScheduledFuture<?> scheduledRun;
 
     protected AsyncPeriodicWork(final String name) {
         this.name = name;
     }
 
     /**
-     * Schedules this periodic work now in a new thread, if one isn't already running.
+     * @return
+     *      The worker thread, started on first use, or null once this work was stopped.
+     */
+    private synchronized ScheduledExecutorService executor() {
+        if (executor == null && !stopped) {
+            executor = Executors.newSingleThreadScheduledExecutor(new NamingThreadFactory(new DaemonThreadFactory(), name + " thread"));
+        }
+        return executor;
+    }
+
+    /**
+     * Cancels the scheduled run and ends the worker thread, a run that is going is interrupted. Triggers after this
+     * are ignored.
+     */
+    @SuppressWarnings("deprecation") // in this case we really want to use PeriodicWork.logger since it reports the impl class
+    public synchronized void stop() {
+        stopped = true;
+        cancelScheduledRun();
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        logger.log(Level.FINE, "Stopped {0}", name);
+    }
+
+    /**
+     * Schedules this periodic work now on the worker thread. If a run is still going, one catch-up run is queued.
      */
     @Override
     @SuppressWarnings("deprecation") // in this case we really want to use PeriodicWork.logger since it reports the impl class
     public final void doRun() {
         try {
-            if ((thread != null) && thread.isAlive()) {
-                logger.log(Level.WARNING, "{0} thread is still running. Execution aborted.", name);
+            if (!running.compareAndSet(false, true)) {
+                if (pending.compareAndSet(false, true)) {
+                    overruns.incrementAndGet();
+                    logger.log(Level.FINE, "{0} is still running, queued a catch-up run.", name);
+                } else {
+                    coalesced.incrementAndGet();
+                    logger.log(Level.FINE, "{0} is still running, catch-up run already queued.", name);
+                }
                 return;
             }
-            thread = new Thread(() -> {
-                logger.log(Level.FINEST, "Started {0}", name);
-                final long startTime = System.currentTimeMillis();
-                long stopTime;
-
-                final StreamTaskListener l = createListener();
-                try {
-                    l.getLogger().printf("Started at %tc%n", new Date(startTime));
-                    ACL.impersonate(ACL.SYSTEM);
-
-                    execute(l);
-                } catch (IOException e) {
-                    e.printStackTrace(l.fatalError(e.getMessage()));
-                } catch (InterruptedException e) {
-                    e.printStackTrace(l.fatalError("aborted"));
-                } finally {
-                    stopTime = System.currentTimeMillis();
-                    try {
-                        l.getLogger().printf("Finished at %tc. %dms%n", new Date(stopTime), stopTime - startTime);
-                    } finally {
-                        l.closeQuietly();
-                    }
-                }
-                logger.log(Level.FINEST, "Finished {0}. {1,number} ms", new Object[]{name, stopTime - startTime});
-            }, name + " thread");
-            thread.start();
+            final ScheduledExecutorService e = executor();
+            if (e == null) {
+                running.set(false);
+                return;
+            }
+            e.execute(this::runLoop);
         } catch (final Exception e) {
+            running.set(false);
             logger.log(Level.SEVERE, name + " thread failed with error", e);
         }
     }
 
+    /**
+     * Runs until no catch-up run is pending anymore.
+     */
+    private void runLoop() {
+        try {
+            do {
+                pending.set(false);
+                runOnce();
+            } while (pending.get());
+        } finally {
+            running.set(false);
+            // a trigger might have queued a catch-up between the last check and releasing the running flag
+            if (pending.get() && running.compareAndSet(false, true)) {
+                final ScheduledExecutorService e = executor();
+                if (e == null) {
+                    running.set(false);
+                } else {
+                    e.execute(this::runLoop);
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("deprecation") // in this case we really want to use PeriodicWork.logger since it reports the impl class
+    private void runOnce() {
+        logger.log(Level.FINEST, "Started {0}", name);
+        runs.incrementAndGet();
+        final long startTime = System.currentTimeMillis();
+        long stopTime;
+
+        final StreamTaskListener l = createListener();
+        try {
+            l.getLogger().printf("Started at %tc%n", new Date(startTime));
+            ACL.impersonate(ACL.SYSTEM);
+
+            execute(l);
+        } catch (IOException e) {
+            e.printStackTrace(l.fatalError(e.getMessage()));
+        } catch (InterruptedException e) {
+            e.printStackTrace(l.fatalError("aborted"));
+        } catch (RuntimeException e) {
+            e.printStackTrace(l.fatalError(e.getMessage()));
+        } finally {
+            stopTime = System.currentTimeMillis();
+            try {
+                l.getLogger().printf("Finished at %tc. %dms%n", new Date(stopTime), stopTime - startTime);
+            } finally {
+                l.closeQuietly();
+            }
+        }
+        logger.log(Level.FINEST, "Finished {0}. {1,number} ms", new Object[]{name, stopTime - startTime});
+    }
+
+    /**
+     * Triggers a run after the given delay, replacing any run scheduled earlier through this method. The triggered run
+     * follows the same coalescing rules as {@link #doRun()}.
+     *
+     * @param delay
+     *      Delay in ms, negative values trigger immediately.
+     */
+    protected final synchronized void scheduleRun(final long delay) {
+        cancelScheduledRun();
+        final ScheduledExecutorService e = executor();
+        if (e != null) {
+            scheduledRun = e.schedule(this::doRun, Math.max(0, delay), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    protected final synchronized void cancelScheduledRun() {
+        if (scheduledRun != null) {
+            scheduledRun.cancel(false);
+            scheduledRun = null;
+        }
+    }
+
+    /**
+     * @return
+     *      Number of runs executed so far, including catch-up runs.
+     */
+    public long getRunCount() {
+        return runs.get();
+    }
+
+    /**
+     * @return
+     *      Number of triggers that arrived while a run was going and queued a catch-up run.
+     */
+    public long getOverrunCount() {
+        return overruns.get();
+    }
+
+    /**
+     * @return
+     *      Number of triggers that were merged into an already queued catch-up run.
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
     @SuppressWarnings("deprecation") // in this case we really want to use PeriodicWork.logger since it reports the impl class
     protected StreamTaskListener createListener() {
         File f = getLogFile();
@@ -0,0 +1,298 @@
+package org.jenkins.plugins.labelmanager.index;
+
+import antlr.ANTLRException;
+import hudson.Util;
+import hudson.model.Label;
+import hudson.model.Node;
+import hudson.model.labels.LabelAtom;
+import hudson.model.labels.LabelExpression;
+import hudson.model.labels.LabelVisitor;
+import jenkins.model.Jenkins;
+import org.jenkins.plugins.labelmanager.model.type.NodeType;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Inverted index from label to the nodes carrying it, so a label expression is evaluated with a few {@link BitSet}
+ * operations on the matching nodes instead of testing every node of the fleet.
+ *
+ * Every node gets a stable id and each label keeps the ids of its nodes, so both "which nodes have label X" and "which
+ * labels does node Y have" are answered without looking at other nodes. The index is kept in step with
+ * {@link NodeIndex}: when its generation moves the nodes are compared with what was indexed and only the postings of
+ * nodes that were added, removed or relabeled are patched. Label changes made by the plugin itself are patched in
+ * place by {@link #relabeled(Collection, long)} and do not need that comparison. A node matches the labels of its
+ * label string and its own name, labels contributed by a {@link hudson.model.LabelFinder} are not indexed.
+ */
+public class LabelIndex {
+
+    private static final LabelIndex INSTANCE = new LabelIndex();
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<Node> nodes = new ArrayList<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<Set<String>> labelsById = new ArrayList<>();
+    private final Map<String, BitSet> postings = new HashMap<>();
+    private final BitSet live = new BitSet();
+    private final BitSet free = new BitSet();
+    private long generation = -1;
+
+    public static LabelIndex get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Parses the expression and resolves it, see {@link #resolve(Label)}.
+     *
+     * @throws ANTLRException
+     *      if the expression cannot be parsed.
+     */
+    public List<Node> resolve(final String expression) throws ANTLRException {
+        return resolve(Label.parseExpression(expression));
+    }
+
+    /**
+     * @return
+     *      The nodes matching the label expression, in the order they were first indexed.
+     */
+    public synchronized List<Node> resolve(final Label label) {
+        sync();
+        final BitSet matches = label.accept(new Evaluator(), null);
+        final List<Node> result = new ArrayList<>(matches.cardinality());
+        for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id + 1)) {
+            result.add(nodes.get(id));
+        }
+        return result;
+    }
+
+    /**
+     * @return
+     *      The number of nodes carrying the label.
+     */
+    public synchronized int count(final String label) {
+        sync();
+        final BitSet p = postings.get(label);
+        return p == null ? 0 : p.cardinality();
+    }
+
+    /**
+     * @return
+     *      The names of the nodes carrying the label, empty if no node has it.
+     */
+    public synchronized List<String> getNodeNames(final String label) {
+        sync();
+        final BitSet p = postings.get(label);
+        if (p == null) {
+            return Collections.emptyList();
+        }
+        final List<String> result = new ArrayList<>(p.cardinality());
+        for (int id = p.nextSetBit(0); id >= 0; id = p.nextSetBit(id + 1)) {
+            result.add(names.get(id));
+        }
+        return result;
+    }
+
+    /**
+     * @return
+     *      The labels of the node including its own name, or null if there is no such node.
+     */
+    public synchronized Set<String> getLabels(final String node) {
+        sync();
+        final Integer id = ids.get(node);
+        return id == null ? null : Collections.unmodifiableSet(labelsById.get(id));
+    }
+
+    /**
+     * @return
+     *      All labels carried by at least one node.
+     */
+    public synchronized Set<String> getLabelNames() {
+        sync();
+        return new TreeSet<>(postings.keySet());
+    }
+
+    /**
+     * @return
+     *      All indexed node names, {@link NodeType#MASTER_NODE} first.
+     */
+    public synchronized List<String> getNodeNames() {
+        sync();
+        final List<String> result = new ArrayList<>(ids.size());
+        for (int id = live.nextSetBit(0); id >= 0; id = live.nextSetBit(id + 1)) {
+            result.add(names.get(id));
+        }
+        return result;
+    }
+
+    /**
+     * Patches the postings of nodes the plugin just relabeled. If the index was current before the change and the
+     * change moved the {@link NodeIndex} generation by exactly one step, the index is current again without comparing
+     * all nodes.
+     *
+     * @param changed
+     *      The relabeled nodes.
+     * @param generationBefore
+     *      The {@link NodeIndex} generation read before the nodes were changed.
+     */
+    public synchronized void relabeled(final Collection<Node> changed, final long generationBefore) {
+        if (generation != generationBefore) {
+            // already stale, the next query compares all nodes anyway
+            return;
+        }
+        final Set<String> seen = new HashSet<>();
+        for (Node n : changed) {
+            final String name = nameOf(n);
+            if (ids.containsKey(name)) {
+                update(name, n, seen);
+            }
+        }
+        final long current = NodeIndex.get().getGeneration();
+        if (current == generationBefore + 1) {
+            generation = current;
+        }
+    }
+
+    private static String nameOf(final Node node) {
+        return node instanceof Jenkins ? NodeType.MASTER_NODE : node.getNodeName();
+    }
+
+    private void sync() {
+        final NodeIndex index = NodeIndex.get();
+        final long gen = index.getGeneration();
+        if (gen == generation) {
+            return;
+        }
+        final Jenkins instance = Jenkins.getActiveInstance();
+        final Set<String> seen = new HashSet<>();
+        update(NodeType.MASTER_NODE, instance, seen);
+        for (Node n : instance.getNodes()) {
+            update(n.getNodeName(), n, seen);
+        }
+        for (Map.Entry<String, Integer> e : new ArrayList<>(ids.entrySet())) {
+            if (!seen.contains(e.getKey())) {
+                final int id = e.getValue();
+                unpost(id, labelsById.get(id));
+                ids.remove(e.getKey());
+                nodes.set(id, null);
+                names.set(id, null);
+                labelsById.set(id, Collections.emptySet());
+                live.clear(id);
+                free.set(id);
+            }
+        }
+        generation = gen;
+    }
+
+    private void update(final String name, final Node node, final Set<String> seen) {
+        seen.add(name);
+        final Set<String> labels = labelsOf(name, node);
+        final Integer known = ids.get(name);
+        final int id = known != null ? known : free.isEmpty() ? nodes.size() : free.nextSetBit(0);
+        if (known == null) {
+            free.clear(id);
+            if (id == nodes.size()) {
+                nodes.add(node);
+                names.add(name);
+                labelsById.add(Collections.emptySet());
+            }
+            names.set(id, name);
+            ids.put(name, id);
+            live.set(id);
+        }
+        nodes.set(id, node);
+        final Set<String> before = labelsById.get(id);
+        if (before.equals(labels)) {
+            return;
+        }
+        final Set<String> removed = new HashSet<>(before);
+        removed.removeAll(labels);
+        unpost(id, removed);
+        for (String l : labels) {
+            if (!before.contains(l)) {
+                postings.computeIfAbsent(l, k -> new BitSet()).set(id);
+            }
+        }
+        labelsById.set(id, labels);
+    }
+
+    private void unpost(final int id, final Set<String> labels) {
+        for (String l : labels) {
+            final BitSet p = postings.get(l);
+            if (p != null) {
+                p.clear(id);
+                if (p.isEmpty()) postings.remove(l);
+            }
+        }
+    }
+
+    private static Set<String> labelsOf(final String name, final Node node) {
+        final Set<String> labels = new HashSet<>();
+        for (String l : Util.fixNull(node.getLabelString()).split("\\s+")) {
+            if (!l.isEmpty()) labels.add(l);
+        }
+        labels.add(name);
+        return labels;
+    }
+
+    /**
+     * Evaluates an expression bottom up, every intermediate result is a fresh {@link BitSet} of node ids.
+     */
+    private final class Evaluator extends LabelVisitor<BitSet, Void> {
+        @Override
+        public BitSet onAtom(LabelAtom a, Void param) {
+            final BitSet p = postings.get(a.getName());
+            return p == null ? new BitSet() : (BitSet) p.clone();
+        }
+
+        @Override
+        public BitSet onParen(LabelExpression.Paren p, Void param) {
+            return p.base.accept(this, param);
+        }
+
+        @Override
+        public BitSet onNot(LabelExpression.Not p, Void param) {
+            final BitSet b = (BitSet) live.clone();
+            b.andNot(p.base.accept(this, param));
+            return b;
+        }
+
+        @Override
+        public BitSet onAnd(LabelExpression.And p, Void param) {
+            final BitSet b = p.lhs.accept(this, param);
+            if (!b.isEmpty()) b.and(p.rhs.accept(this, param));
+            return b;
+        }
+
+        @Override
+        public BitSet onOr(LabelExpression.Or p, Void param) {
+            final BitSet b = p.lhs.accept(this, param);
+            b.or(p.rhs.accept(this, param));
+            return b;
+        }
+
+        @Override
+        public BitSet onIff(LabelExpression.Iff p, Void param) {
+            final BitSet b = p.lhs.accept(this, param);
+            b.xor(p.rhs.accept(this, param));
+            final BitSet result = (BitSet) live.clone();
+            result.andNot(b);
+            return result;
+        }
+
+        @Override
+        public BitSet onImplies(LabelExpression.Implies p, Void param) {
+            final BitSet result = (BitSet) live.clone();
+            result.andNot(p.lhs.accept(this, param));
+            result.or(p.rhs.accept(this, param));
+            return result;
+        }
+    }
+}
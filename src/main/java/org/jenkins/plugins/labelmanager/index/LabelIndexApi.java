@@ -0,0 +1,111 @@
+package org.jenkins.plugins.labelmanager.index;
+
+import hudson.model.Api;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Remote API of the {@link LabelIndex}: <i>index/api/json</i> lists every label with its nodes and every node with
+ * its labels, <i>index/label/X/api/json</i> and <i>index/node/Y/api/json</i> answer a single lookup.
+ */
+@ExportedBean(defaultVisibility = 999)
+public class LabelIndexApi {
+
+    private final LabelIndex index;
+
+    public LabelIndexApi(LabelIndex index) {
+        this.index = index;
+    }
+
+    @Exported
+    public List<LabelEntry> getLabels() {
+        final List<LabelEntry> result = new ArrayList<>();
+        for (String label : index.getLabelNames()) {
+            result.add(new LabelEntry(label, index.getNodeNames(label)));
+        }
+        return result;
+    }
+
+    @Exported
+    public List<NodeEntry> getNodes() {
+        final List<NodeEntry> result = new ArrayList<>();
+        for (String node : index.getNodeNames()) {
+            final Set<String> labels = index.getLabels(node);
+            if (labels != null) result.add(new NodeEntry(node, labels));
+        }
+        return result;
+    }
+
+    public LabelEntry getLabel(String label) {
+        return new LabelEntry(label, index.getNodeNames(label));
+    }
+
+    public NodeEntry getNode(String node) {
+        final Set<String> labels = index.getLabels(node);
+        return labels == null ? null : new NodeEntry(node, labels);
+    }
+
+    public Api getApi() {
+        return new Api(this);
+    }
+
+    @ExportedBean(defaultVisibility = 999)
+    public static class LabelEntry {
+        private final String name;
+        private final List<String> nodes;
+
+        LabelEntry(String name, List<String> nodes) {
+            this.name = name;
+            this.nodes = nodes;
+        }
+
+        @Exported
+        public String getName() {
+            return name;
+        }
+
+        @Exported
+        public List<String> getNodes() {
+            return nodes;
+        }
+
+        @Exported
+        public int getCount() {
+            return nodes.size();
+        }
+
+        public Api getApi() {
+            return new Api(this);
+        }
+    }
+
+    @ExportedBean(defaultVisibility = 999)
+    public static class NodeEntry {
+        private final String name;
+        private final Set<String> labels;
+
+        NodeEntry(String name, Set<String> labels) {
+            this.name = name;
+            this.labels = new TreeSet<>(labels);
+        }
+
+        @Exported
+        public String getName() {
+            return name;
+        }
+
+        @Exported
+        public Set<String> getLabels() {
+            return labels;
+        }
+
+        public Api getApi() {
+            return new Api(this);
+        }
+    }
+}
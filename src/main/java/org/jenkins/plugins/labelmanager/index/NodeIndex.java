@@ -0,0 +1,110 @@
+package org.jenkins.plugins.labelmanager.index;
+
+import hudson.Extension;
+import hudson.model.Node;
+import hudson.slaves.ComputerListener;
+import jenkins.model.Jenkins;
+import org.jenkins.plugins.labelmanager.model.type.NodeType;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Name to {@link Node} lookup shared by the whole plugin, so resolving node names is a hash lookup instead of a scan
+ * of {@link Jenkins#getNodes()}.
+ *
+ * The index is rebuilt lazily after Jenkins reports a node configuration change. Anyone caching nodes can compare
+ * {@link #getGeneration()} to find out if their reference may be stale.
+ */
+public class NodeIndex {
+
+    private static final NodeIndex INSTANCE = new NodeIndex();
+
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    public static NodeIndex get() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return
+     *      The node with this name or null if there is none. {@link NodeType#MASTER_NODE} resolves to Jenkins itself.
+     */
+    public Node getNode(final String name) {
+        if (name == null) return null;
+        if (name.compareToIgnoreCase(NodeType.MASTER_NODE) == 0) {
+            return Jenkins.getActiveInstance();
+        }
+        return snapshot().nodes.get(name);
+    }
+
+    public boolean hasNode(final String name) {
+        return name != null && snapshot().names.contains(name);
+    }
+
+    /**
+     * @return
+     *      The display names of all nodes including {@link NodeType#MASTER_NODE}, in Jenkins order.
+     */
+    public Set<String> getNodeNames() {
+        return snapshot().names;
+    }
+
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    public void invalidate() {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+
+    private Snapshot snapshot() {
+        Snapshot s = snapshot;
+        final long gen = generation.get();
+        // a snapshot of an older generation is stale, even if it was published after the invalidation
+        if (s == null || s.generation != gen) {
+            s = new Snapshot(Jenkins.getActiveInstance(), gen);
+            snapshot = s;
+        }
+        return s;
+    }
+
+    private static final class Snapshot {
+        private final long generation;
+        private final Map<String, Node> nodes = new HashMap<>();
+        private final Set<String> names;
+
+        /**
+         * @param generation
+         *      The generation read before the nodes, a change while they are read makes the snapshot stale.
+         */
+        Snapshot(Jenkins instance, long generation) {
+            this.generation = generation;
+            Set<String> displayNames = new LinkedHashSet<>();
+            for (Node n : instance.getNodes()) {
+                nodes.put(n.getNodeName(), n);
+                displayNames.add(n.getDisplayName());
+            }
+            displayNames.add(NodeType.MASTER_NODE);
+            names = Collections.unmodifiableSet(displayNames);
+        }
+    }
+
+    /**
+     * Core 1.651 has no NodeListener yet, {@link ComputerListener#onConfigurationChange()} is called whenever nodes
+     * are added, removed or replaced.
+     */
+    @Extension
+    public static class Invalidator extends ComputerListener {
+        @Override
+        public void onConfigurationChange() {
+            NodeIndex.get().invalidate();
+        }
+    }
+}
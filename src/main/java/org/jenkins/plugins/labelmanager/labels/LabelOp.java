@@ -0,0 +1,70 @@
+package org.jenkins.plugins.labelmanager.labels;
+
+import org.jenkins.plugins.labelmanager.model.LabelAction;
+
+/**
+ * A label change in normal form: optionally drop all labels, drop the labels in <i>remove</i>, then add the labels in
+ * <i>add</i>. Every {@link LabelAction} is such a change and so is any sequence of them, {@link #then(LabelOp)} fuses
+ * two changes into one. All crons of a tick touching a node are fused in their order and applied to the node's labels
+ * once, giving the same labels in the same order as applying them one after the other.
+ */
+public final class LabelOp {
+
+    public static final LabelOp IDENTITY = new LabelOp(false, LabelSet.EMPTY, LabelSet.EMPTY);
+
+    private final boolean clear;
+    private final LabelSet remove;
+    private final LabelSet add;
+
+    private LabelOp(boolean clear, LabelSet remove, LabelSet add) {
+        this.clear = clear;
+        this.remove = remove;
+        this.add = add;
+    }
+
+    public static LabelOp of(final LabelAction action, final LabelSet labels) {
+        switch (action) {
+            case ADD:
+                return new LabelOp(false, LabelSet.EMPTY, labels);
+            case REMOVE:
+                return new LabelOp(false, labels, LabelSet.EMPTY);
+            case REPLACE:
+            default:
+                return new LabelOp(true, LabelSet.EMPTY, labels);
+        }
+    }
+
+    /**
+     * @return
+     *      A single change equal to applying this change and then the next one.
+     */
+    public LabelOp then(final LabelOp next) {
+        if (this == IDENTITY) return next;
+        if (next == IDENTITY) return this;
+        if (next.clear) {
+            return next;
+        }
+        return new LabelOp(clear, clear ? LabelSet.EMPTY : remove.union(next.remove), add.minus(next.remove).union(next.add));
+    }
+
+    public LabelSet apply(final LabelSet current) {
+        return (clear ? LabelSet.EMPTY : current.minus(remove)).union(add);
+    }
+
+    public boolean isClear() {
+        return clear;
+    }
+
+    public LabelSet getRemove() {
+        return remove;
+    }
+
+    public LabelSet getAdd() {
+        return add;
+    }
+
+    @Override
+    public String toString() {
+        return (clear ? "clear " : "") + "-" + remove + " +" + add;
+    }
+}
@@ -0,0 +1,239 @@
+package org.jenkins.plugins.labelmanager.labels;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * Immutable set of interned labels.
+ *
+ * Membership is kept in a {@link BitSet} so union and difference are word level operations. The order labels were
+ * added in is kept next to it, so {@link #toLabelString()} is deterministic: labels already present keep their
+ * position and new labels are appended in the order they were given.
+ *
+ * Ids are only comparable within one {@link LabelTable}. Operations on sets of different tables first intern both in
+ * one table, see {@link #isCurrent()}.
+ */
+public final class LabelSet {
+
+    public static final LabelSet EMPTY = new LabelSet(null, new int[0], new BitSet());
+
+    private final LabelTable table;
+    private final int[] order;
+    private final BitSet bits;
+    private String labelString;
+    private int hash;
+
+    private LabelSet(LabelTable table, int[] order, BitSet bits) {
+        this.table = table;
+        this.order = order;
+        this.bits = bits;
+    }
+
+    /**
+     * Parses a space separated label string, empty tokens and duplicates are dropped.
+     */
+    public static LabelSet parse(final String labelString) {
+        if (labelString == null || labelString.trim().isEmpty()) {
+            return EMPTY;
+        }
+        final String[] tokens = labelString.trim().split(" ");
+        while (true) {
+            final LabelTable table = LabelTable.get();
+            final LabelSet set = parse(tokens, table);
+            if (set != null) {
+                return set;
+            }
+            LabelTable.rotate(table, tokens.length);
+        }
+    }
+
+    /**
+     * @return
+     *      The set interned in the table, or null if the table is full.
+     */
+    private static LabelSet parse(final String[] tokens, final LabelTable table) {
+        final int[] order = new int[tokens.length];
+        final BitSet bits = new BitSet();
+        int size = 0;
+        for (String token : tokens) {
+            if (token.isEmpty()) continue;
+            final int id = table.intern(token);
+            if (id < 0) {
+                return null;
+            }
+            if (!bits.get(id)) {
+                bits.set(id);
+                order[size++] = id;
+            }
+        }
+        return new LabelSet(table, size == order.length ? order : Arrays.copyOf(order, size), bits);
+    }
+
+    /**
+     * @return
+     *      true if this set uses the current {@link LabelTable}, operations with other current sets need no
+     *      conversion.
+     */
+    public boolean isCurrent() {
+        return table == null || table == LabelTable.get();
+    }
+
+    /**
+     * @return
+     *      Both sets interned in one table, the current one unless it cannot hold the labels of both.
+     */
+    private static LabelSet[] inOneTable(final LabelSet a, final LabelSet b) {
+        while (true) {
+            final LabelTable table = LabelTable.get();
+            final LabelSet x = parse(a.names(), table);
+            final LabelSet y = x == null ? null : parse(b.names(), table);
+            if (y != null) {
+                return new LabelSet[] { x, y };
+            }
+            LabelTable.rotate(table, a.size() + b.size());
+        }
+    }
+
+    private String[] names() {
+        final String[] names = new String[order.length];
+        for (int i = 0; i < order.length; i++) {
+            names[i] = table.name(order[i]);
+        }
+        return names;
+    }
+
+    /**
+     * @return
+     *      true if the ids of both sets can be compared directly.
+     */
+    private boolean sameTable(final LabelSet other) {
+        return table == other.table || table == null || other.table == null;
+    }
+
+    public static LabelSet of(final Collection<String> labels) {
+        return parse(String.join(" ", labels));
+    }
+
+    /**
+     * @return
+     *      All labels of this set followed by the labels of the other set not in this set.
+     */
+    public LabelSet union(final LabelSet other) {
+        if (!sameTable(other)) {
+            final LabelSet[] sets = inOneTable(this, other);
+            return sets[0].union(sets[1]);
+        }
+        if (table == null) {
+            return other;
+        }
+        final BitSet added = (BitSet) other.bits.clone();
+        added.andNot(bits);
+        if (added.isEmpty()) {
+            return this;
+        }
+        final int[] o = Arrays.copyOf(order, order.length + added.cardinality());
+        int size = order.length;
+        for (int id : other.order) {
+            if (added.get(id)) o[size++] = id;
+        }
+        final BitSet b = (BitSet) bits.clone();
+        b.or(added);
+        return new LabelSet(table, o, b);
+    }
+
+    /**
+     * @return
+     *      The labels of this set that are not in the other set.
+     */
+    public LabelSet minus(final LabelSet other) {
+        if (!sameTable(other)) {
+            final LabelSet[] sets = inOneTable(this, other);
+            return sets[0].minus(sets[1]);
+        }
+        if (!bits.intersects(other.bits)) {
+            return this;
+        }
+        final BitSet b = (BitSet) bits.clone();
+        b.andNot(other.bits);
+        final int[] o = new int[b.cardinality()];
+        int size = 0;
+        for (int id : order) {
+            if (b.get(id)) o[size++] = id;
+        }
+        return new LabelSet(table, o, b);
+    }
+
+    public boolean contains(final String label) {
+        if (table == null) return false;
+        final int id = table.lookup(label);
+        return id >= 0 && bits.get(id);
+    }
+
+    public boolean containsAll(final LabelSet other) {
+        if (!sameTable(other)) {
+            final LabelSet[] sets = inOneTable(this, other);
+            return sets[0].containsAll(sets[1]);
+        }
+        final BitSet b = (BitSet) other.bits.clone();
+        b.andNot(bits);
+        return b.isEmpty();
+    }
+
+    public int size() {
+        return order.length;
+    }
+
+    public boolean isEmpty() {
+        return order.length == 0;
+    }
+
+    public String toLabelString() {
+        String s = labelString;
+        if (s == null) {
+            final StringBuilder sb = new StringBuilder();
+            for (int id : order) {
+                if (sb.length() > 0) sb.append(' ');
+                sb.append(table.name(id));
+            }
+            s = labelString = sb.toString();
+        }
+        return s;
+    }
+
+    /**
+     * Two label sets are equal if they contain the same labels, regardless of their order.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof LabelSet)) return false;
+        final LabelSet other = (LabelSet) obj;
+        if (!sameTable(other)) {
+            if (size() != other.size()) return false;
+            final LabelSet[] sets = inOneTable(this, other);
+            return sets[0].equals(sets[1]);
+        }
+        return bits.equals(other.bits);
+    }
+
+    /**
+     * Independent of the order and of the {@link LabelTable}, like {@link #equals(Object)}.
+     */
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0 && order.length > 0) {
+            for (int id : order) {
+                h += table.name(id).hashCode();
+            }
+            hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + toLabelString() + "]";
+    }
+}
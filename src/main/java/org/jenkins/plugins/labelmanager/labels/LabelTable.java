@@ -0,0 +1,111 @@
+package org.jenkins.plugins.labelmanager.labels;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Intern table mapping labels to small ints, so label sets can be stored as bit sets.
+ *
+ * Ids are assigned in the order labels are first seen and are never reused within a table. Lookups of known labels do
+ * not lock. Labels that keep changing (dates, build ids) would make a single table grow forever, so once a table holds
+ * {@link #MAX_LABELS} labels a new, empty one becomes the current table. Every {@link LabelSet} keeps the table it was
+ * interned in, sets of an older table are interned again when they meet a set of the current one, and an old table is
+ * garbage collected with the last set using it.
+ */
+public final class LabelTable {
+
+    /**
+     * Labels per table before a new one is started, <i>-Dorg.jenkins.plugins.labelmanager.labels.LabelTable.maxLabels</i>.
+     */
+    public static final int MAX_LABELS = Math.max(64, Integer.getInteger(LabelTable.class.getName() + ".maxLabels", 65536));
+
+    private static volatile LabelTable current = new LabelTable(MAX_LABELS);
+
+    private final int maxLabels;
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[64];
+    private int size = 0;
+
+    private LabelTable(int maxLabels) {
+        this.maxLabels = maxLabels;
+    }
+
+    /**
+     * @return
+     *      The current table, new labels are interned in it.
+     */
+    public static LabelTable get() {
+        return current;
+    }
+
+    /**
+     * Starts a new, empty table unless another thread already replaced the full one.
+     *
+     * @param needed
+     *      Number of labels that have to fit into the new table.
+     */
+    static void rotate(final LabelTable full, final int needed) {
+        synchronized (LabelTable.class) {
+            if (current == full) {
+                current = new LabelTable(Math.max(full.maxLabels, needed));
+            }
+        }
+    }
+
+    /**
+     * Starts a new table with room for the given number of labels, e.g. to drop the labels of a replaced
+     * configuration. Existing label sets stay valid.
+     */
+    public static void reset(final int maxLabels) {
+        synchronized (LabelTable.class) {
+            current = new LabelTable(Math.max(1, maxLabels));
+        }
+    }
+
+    /**
+     * @return
+     *      The id of the label, or -1 if the label is new and the table is full.
+     */
+    public int intern(final String label) {
+        Integer id = ids.get(label);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(label);
+            if (id != null) {
+                return id;
+            }
+            if (size >= maxLabels) {
+                return -1;
+            }
+            String[] n = names;
+            if (size == n.length) {
+                n = Arrays.copyOf(n, size * 2);
+            }
+            n[size] = label;
+            names = n;
+            id = size++;
+            // publish the id only after the name can be read back
+            ids.put(label, id);
+            return id;
+        }
+    }
+
+    /**
+     * @return
+     *      The id of the label or -1 if it was never interned.
+     */
+    public int lookup(final String label) {
+        final Integer id = ids.get(label);
+        return id == null ? -1 : id;
+    }
+
+    public String name(final int id) {
+        return names[id];
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
@@ -0,0 +1,354 @@
+package org.jenkins.plugins.labelmanager.lease;
+
+import hudson.model.Api;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Leader election between controllers sharing one configuration, so only one of them applies the crons.
+ *
+ * The lease is a single line <i>owner token heartbeat</i> in <i>leader.lease</i> inside a shared directory, only read
+ * and written while holding a {@link FileLock} on it. The leader increases the heartbeat every third of the lease
+ * duration. A standby takes the lease over once the heartbeat did not change for a whole lease duration, measured on its
+ * own clock so the clocks of the controllers do not have to agree, or right away when the leader released it. Every
+ * takeover increases the token. The leader writes through {@link #whileHolding(long, Supplier)}, which keeps the file
+ * locked while it checks the token and writes, so no standby can take the lease over in between and a leader that was
+ * paused past its lease cannot write over its successor.
+ *
+ * Enabled by starting Jenkins with <i>-Dorg.jenkins.plugins.labelmanager.lease.LeaseManager.dir=/shared/dir</i>, the
+ * lease duration defaults to 15 seconds and is set with <i>.leaseSeconds</i>. File locks have to work across the
+ * controllers, which is the case for local file systems and NFSv4.
+ */
+@ExportedBean(defaultVisibility = 999)
+public class LeaseManager {
+
+    private static final Logger LOGGER = Logger.getLogger(LeaseManager.class.getName());
+
+    public static final String DIR = System.getProperty(LeaseManager.class.getName() + ".dir");
+    public static final long LEASE_SECONDS = Long.getLong(LeaseManager.class.getName() + ".leaseSeconds", 15);
+
+    private static final String FILE_NAME = "leader.lease";
+    private static final String RELEASED = "-";
+
+    /**
+     * A JVM cannot hold two locks on the same file, managers of the same file in one JVM take turns.
+     */
+    private static final ConcurrentHashMap<String, Object> FILE_LOCKS = new ConcurrentHashMap<>();
+
+    private static volatile LeaseManager instance;
+
+    private final File file;
+    private final String owner;
+    private final long leaseNanos;
+    private final Object fileLock;
+    private ScheduledExecutorService heartbeat;
+    private Record lastSeen;
+    private long lastChange;
+    private long token = -1;
+    private volatile boolean leader;
+    private volatile long leaderUntil;
+
+    public LeaseManager(File dir, String owner, long leaseMillis) {
+        this.file = new File(dir, FILE_NAME).getAbsoluteFile();
+        // the owner is a single word of the lease line
+        this.owner = owner.replaceAll("\\s", "_");
+        this.leaseNanos = TimeUnit.MILLISECONDS.toNanos(leaseMillis);
+        this.fileLock = FILE_LOCKS.computeIfAbsent(file.getPath(), p -> new Object());
+    }
+
+    /**
+     * @return
+     *      The started lease of this controller, or null if no shared directory is configured and this controller
+     *      always applies the crons.
+     */
+    public static LeaseManager get() {
+        if (DIR == null || DIR.trim().isEmpty()) {
+            return null;
+        }
+        if (instance == null) {
+            synchronized (LeaseManager.class) {
+                if (instance == null) {
+                    final LeaseManager lease = new LeaseManager(new File(DIR.trim()), defaultOwner(), TimeUnit.SECONDS.toMillis(LEASE_SECONDS));
+                    lease.start();
+                    instance = lease;
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Releases the lease of this controller if it was started.
+     */
+    public static void shutdown() {
+        final LeaseManager lease;
+        synchronized (LeaseManager.class) {
+            lease = instance;
+            instance = null;
+        }
+        if (lease != null) {
+            lease.stop();
+        }
+    }
+
+    private static String defaultOwner() {
+        // pid@host plus a random part, a restarted controller is a new owner
+        return ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Tries to take or renew the lease right away and then every third of the lease duration.
+     */
+    public synchronized void start() {
+        if (heartbeat != null) return;
+        heartbeat = Executors.newSingleThreadScheduledExecutor(new NamingThreadFactory(new DaemonThreadFactory(), "Label Manager lease"));
+        final long period = Math.max(1, TimeUnit.NANOSECONDS.toMillis(leaseNanos) / 3);
+        heartbeat.scheduleWithFixedDelay(() -> {
+            try {
+                tryAcquire();
+            } catch (IOException | RuntimeException ex) {
+                LOGGER.log(Level.WARNING, "Unable to renew the lease in " + file, ex);
+            }
+        }, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the heartbeat and releases the lease, so a standby takes over without waiting for it to expire.
+     */
+    public void stop() {
+        synchronized (this) {
+            if (heartbeat != null) {
+                heartbeat.shutdownNow();
+                heartbeat = null;
+            }
+        }
+        try {
+            release();
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Unable to release the lease in " + file, ex);
+        }
+    }
+
+    /**
+     * Renews the lease if this controller holds it, takes it over if it expired or was released, otherwise only
+     * watches the heartbeat of the leader.
+     *
+     * @return
+     *      The token of this controller if it is the leader, otherwise -1.
+     */
+    public long tryAcquire() throws IOException {
+        synchronized (fileLock) {
+            synchronized (this) {
+                final long now = System.nanoTime();
+                if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+                    throw new IOException("Could not create directory " + file.getParentFile());
+                }
+                try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                     FileLock l = ch.lock()) {
+                    final Record current = read(ch);
+                    if (current == null || !current.equals(lastSeen)) {
+                        lastSeen = current;
+                        lastChange = now;
+                    }
+                    final boolean mine = current != null && owner.equals(current.owner) && current.token == token;
+                    final boolean free = current == null || RELEASED.equals(current.owner) || now - lastChange >= leaseNanos;
+                    if (!mine && !free) {
+                        if (leader) {
+                            LOGGER.log(Level.WARNING, "Lost the lease to " + current.owner + " (token " + current.token + ")");
+                        }
+                        leader = false;
+                        return -1;
+                    }
+                    final long next = mine ? token : current == null ? 1 : current.token + 1;
+                    final Record renewed = new Record(owner, next, current == null ? 0 : current.heartbeat + 1);
+                    write(ch, renewed);
+                    if (!mine) {
+                        LOGGER.log(Level.INFO, "Took over the lease with token " + next + (current == null ? "" : " from " + current.owner));
+                    }
+                    lastSeen = renewed;
+                    lastChange = now;
+                    token = next;
+                    // the standbys wait a full lease after seeing this heartbeat, so it is safe to lead until then
+                    leaderUntil = now + leaseNanos;
+                    leader = true;
+                    return token;
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs a write fenced by the lease: the lease file stays locked while the token is compared and the write runs,
+     * standbys wait for the lock and cannot take the lease over before the write completed. The heartbeat is
+     * renewed afterwards, a standby that waited for the lock does not mistake a long write for a dead leader.
+     *
+     * @return
+     *      The result of the write, or null if the lease file does not show this controller with the token anymore
+     *      and the write did not run.
+     */
+    public <T> T whileHolding(final long token, final Supplier<T> write) throws IOException {
+        synchronized (fileLock) {
+            try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+                 FileLock l = ch.lock()) {
+                final Record current = read(ch);
+                if (current == null || !owner.equals(current.owner) || current.token != token) {
+                    return null;
+                }
+                final T result = write.get();
+                final Record renewed = new Record(owner, token, current.heartbeat + 1);
+                write(ch, renewed);
+                synchronized (this) {
+                    if (this.token == token) {
+                        lastSeen = renewed;
+                        lastChange = System.nanoTime();
+                        leaderUntil = lastChange + leaseNanos;
+                    }
+                }
+                return result;
+            } catch (NoSuchFileException ex) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Reads the lease again and compares the token. Only a snapshot, use {@link #whileHolding(long, Supplier)} to
+     * write.
+     *
+     * @return
+     *      true if the lease file still shows this controller with the token.
+     */
+    public boolean holds(final long token) throws IOException {
+        synchronized (fileLock) {
+            try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+                 FileLock l = ch.lock()) {
+                final Record current = read(ch);
+                return current != null && owner.equals(current.owner) && current.token == token;
+            } catch (NoSuchFileException ex) {
+                return false;
+            }
+        }
+    }
+
+    private void release() throws IOException {
+        synchronized (fileLock) {
+            synchronized (this) {
+                if (!leader) return;
+                leader = false;
+                try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+                     FileLock l = ch.lock()) {
+                    final Record current = read(ch);
+                    if (current != null && owner.equals(current.owner) && current.token == token) {
+                        lastSeen = new Record(RELEASED, token, current.heartbeat + 1);
+                        write(ch, lastSeen);
+                        LOGGER.log(Level.INFO, "Released the lease with token " + token);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return
+     *      true if this controller holds the lease and its last renewal is not older than the lease duration.
+     */
+    @Exported
+    public boolean isLeader() {
+        return leader && System.nanoTime() - leaderUntil < 0;
+    }
+
+    /**
+     * @return
+     *      The fencing token of the lease this controller holds or last held, -1 if it never did.
+     */
+    @Exported
+    public synchronized long getToken() {
+        return token;
+    }
+
+    @Exported
+    public String getOwner() {
+        return owner;
+    }
+
+    /**
+     * @return
+     *      The owner of the lease as last read from the file.
+     */
+    @Exported
+    public synchronized String getLeaderOwner() {
+        return lastSeen == null || RELEASED.equals(lastSeen.owner) ? null : lastSeen.owner;
+    }
+
+    public Api getApi() {
+        return new Api(this);
+    }
+
+    private static Record read(final FileChannel ch) throws IOException {
+        final ByteBuffer buf = ByteBuffer.allocate((int) Math.min(ch.size(), 4096));
+        ch.read(buf, 0);
+        final String[] parts = new String(buf.array(), 0, buf.position(), StandardCharsets.UTF_8).trim().split(" ");
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            return new Record(parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+        } catch (NumberFormatException ex) {
+            LOGGER.log(Level.WARNING, "Ignoring corrupt lease: " + String.join(" ", parts));
+            return null;
+        }
+    }
+
+    private static void write(final FileChannel ch, final Record r) throws IOException {
+        final ByteBuffer buf = ByteBuffer.wrap((r.owner + " " + r.token + " " + r.heartbeat + "\n").getBytes(StandardCharsets.UTF_8));
+        ch.truncate(0);
+        while (buf.hasRemaining()) {
+            ch.write(buf, buf.position());
+        }
+        ch.force(true);
+    }
+
+    private static final class Record {
+        private final String owner;
+        private final long token;
+        private final long heartbeat;
+
+        Record(String owner, long token, long heartbeat) {
+            this.owner = owner;
+            this.token = token;
+            this.heartbeat = heartbeat;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Record)) return false;
+            final Record r = (Record) obj;
+            return owner.equals(r.owner) && token == r.token && heartbeat == r.heartbeat;
+        }
+
+        @Override
+        public int hashCode() {
+            return owner.hashCode() * 31 + (int) (token ^ heartbeat);
+        }
+    }
+}
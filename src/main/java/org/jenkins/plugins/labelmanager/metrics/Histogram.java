@@ -0,0 +1,135 @@
+package org.jenkins.plugins.labelmanager.metrics;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram with fixed power of two buckets: bucket 0 counts the value 0, bucket <i>i</i> the values in
+ * <i>[2^(i-1), 2^i)</i>, the last bucket everything above. {@link #record(long)} only touches atomic counters and
+ * never allocates, percentiles are estimated from the buckets when they are read.
+ */
+@ExportedBean(defaultVisibility = 999)
+public class Histogram {
+
+    public static final int BUCKETS = 40;
+
+    private final String unit;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public Histogram(String unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * @param value
+     *      The value to record, negative values are recorded as 0.
+     */
+    public void record(long value) {
+        final long v = Math.max(0, value);
+        buckets.incrementAndGet(bucketOf(v));
+        count.incrementAndGet();
+        sum.addAndGet(v);
+        long m;
+        while (v > (m = max.get()) && !max.compareAndSet(m, v)) {
+            // retry until the maximum is at least v
+        }
+    }
+
+    static int bucketOf(long value) {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+    }
+
+    /**
+     * @return
+     *      The largest value counted by the bucket, {@link Long#MAX_VALUE} for the last bucket.
+     */
+    static long upperBound(int bucket) {
+        if (bucket == 0) return 0;
+        return bucket >= BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+
+    @Exported
+    public String getUnit() {
+        return unit;
+    }
+
+    @Exported
+    public long getCount() {
+        return count.get();
+    }
+
+    @Exported
+    public long getSum() {
+        return sum.get();
+    }
+
+    @Exported
+    public long getMax() {
+        return max.get();
+    }
+
+    @Exported
+    public double getMean() {
+        final long c = count.get();
+        return c == 0 ? 0 : (double) sum.get() / c;
+    }
+
+    @Exported
+    public long getP50() {
+        return getPercentile(0.5);
+    }
+
+    @Exported
+    public long getP90() {
+        return getPercentile(0.9);
+    }
+
+    @Exported
+    public long getP99() {
+        return getPercentile(0.99);
+    }
+
+    /**
+     * @return
+     *      The upper bound of the bucket holding the percentile, but never more than the maximum.
+     */
+    public long getPercentile(double percentile) {
+        final long[] counts = getBuckets();
+        long total = 0;
+        for (long c : counts) total += c;
+        if (total == 0) return 0;
+        final long rank = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * @return
+     *      A copy of the bucket counts.
+     */
+    @Exported
+    public long[] getBuckets() {
+        final long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount() + ", mean=" + getMean() + unit + ", p99=" + getP99() + unit + ", max=" + getMax() + unit;
+    }
+}
@@ -0,0 +1,51 @@
+package org.jenkins.plugins.labelmanager.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import hudson.Extension;
+import jenkins.metrics.api.MetricProvider;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Publishes {@link LabelManagerMetrics} to the Metrics plugin, only loaded when the plugin is installed. The gauges
+ * read the plugin's own counters, nothing is recorded twice.
+ */
+@Extension(optional = true)
+public class LabelManagerMetricProvider extends MetricProvider {
+
+    private static final String PREFIX = "jenkins.label-manager.";
+
+    @Override
+    public MetricSet getMetricSet() {
+        final LabelManagerMetrics m = LabelManagerMetrics.get();
+        final Map<String, Metric> metrics = new HashMap<>();
+        metrics.put(PREFIX + "ticks", (Gauge<Long>) m::getTicks);
+        metrics.put(PREFIX + "crons.evaluated", (Gauge<Long>) m::getCronsEvaluated);
+        metrics.put(PREFIX + "crons.fired", (Gauge<Long>) m::getCronsFired);
+        metrics.put(PREFIX + "crons.skipped", (Gauge<Long>) m::getCronsSkipped);
+        metrics.put(PREFIX + "saves", (Gauge<Long>) m::getSaves);
+        metrics.put(PREFIX + "nodes.applied", (Gauge<Long>) m::getNodesApplied);
+        metrics.put(PREFIX + "nodes.failures", (Gauge<Long>) m::getNodeFailures);
+        metrics.put(PREFIX + "overruns", (Gauge<Long>) m::getOverruns);
+        metrics.put(PREFIX + "coalesced", (Gauge<Long>) m::getCoalesced);
+        putHistogram(metrics, "tick.duration", m.getTickDuration());
+        putHistogram(metrics, "crons.evaluated.per-tick", m.getCronsEvaluatedPerTick());
+        putHistogram(metrics, "crons.fired.per-tick", m.getCronsFiredPerTick());
+        putHistogram(metrics, "saves.per-tick", m.getSavesPerTick());
+        putHistogram(metrics, "node.apply.latency", m.getNodeApplyLatency());
+        putHistogram(metrics, "schedule.lag", m.getScheduleLag());
+        return () -> metrics;
+    }
+
+    private static void putHistogram(final Map<String, Metric> metrics, final String name, final Histogram h) {
+        final String prefix = PREFIX + name + "." + h.getUnit() + ".";
+        metrics.put(prefix + "count", (Gauge<Long>) h::getCount);
+        metrics.put(prefix + "mean", (Gauge<Double>) h::getMean);
+        metrics.put(prefix + "p50", (Gauge<Long>) h::getP50);
+        metrics.put(prefix + "p99", (Gauge<Long>) h::getP99);
+        metrics.put(prefix + "max", (Gauge<Long>) h::getMax);
+    }
+}
@@ -0,0 +1,183 @@
+package org.jenkins.plugins.labelmanager.metrics;
+
+import hudson.model.Api;
+import org.jenkins.plugins.labelmanager.LabelManagerPeriodicWork;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+import org.kohsuke.stapler.export.Flavor;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters and histograms of the worker, served as JSON at <i>/label-manager/metrics</i> and registered with the
+ * Metrics plugin if it is installed, see {@link LabelManagerMetricProvider}.
+ *
+ * Everything is recorded into preallocated atomic counters, so recording on the worker thread and the apply pool
+ * never allocates and never blocks. The counters live as long as the JVM and are not persisted.
+ */
+@ExportedBean(defaultVisibility = 999)
+public class LabelManagerMetrics {
+
+    private static final LabelManagerMetrics INSTANCE = new LabelManagerMetrics();
+
+    private final Histogram tickDuration = new Histogram("ms");
+    private final Histogram cronsEvaluatedPerTick = new Histogram("crons");
+    private final Histogram cronsFiredPerTick = new Histogram("crons");
+    private final Histogram savesPerTick = new Histogram("saves");
+    private final Histogram nodeApplyLatency = new Histogram("us");
+    private final Histogram scheduleLag = new Histogram("ms");
+    private final AtomicLong ticks = new AtomicLong();
+    private final AtomicLong cronsEvaluated = new AtomicLong();
+    private final AtomicLong cronsFired = new AtomicLong();
+    private final AtomicLong cronsSkipped = new AtomicLong();
+    private final AtomicLong saves = new AtomicLong();
+    private final AtomicLong nodesApplied = new AtomicLong();
+    private final AtomicLong nodeFailures = new AtomicLong();
+
+    public static LabelManagerMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Records a finished tick of the worker.
+     *
+     * @param duration
+     *      Duration of the tick in ms.
+     * @param evaluated
+     *      Executions taken off the schedule, fired or skipped.
+     * @param fired
+     *      Executions that were run.
+     * @param saveCount
+     *      Number of times configuration was written to disk.
+     */
+    public void recordTick(long duration, int evaluated, int fired, int saveCount) {
+        ticks.incrementAndGet();
+        tickDuration.record(duration);
+        cronsEvaluatedPerTick.record(evaluated);
+        cronsEvaluated.addAndGet(evaluated);
+        cronsFiredPerTick.record(fired);
+        cronsFired.addAndGet(fired);
+        cronsSkipped.addAndGet(evaluated - fired);
+        savesPerTick.record(saveCount);
+        saves.addAndGet(saveCount);
+    }
+
+    /**
+     * @param lag
+     *      Time the cron ran minus the time it was scheduled for in ms, early runs count as 0.
+     */
+    public void recordScheduleLag(long lag) {
+        scheduleLag.record(lag);
+    }
+
+    /**
+     * @param nanos
+     *      Time it took to apply the staged changes to a node.
+     */
+    public void recordNodeApply(long nanos, boolean success) {
+        nodeApplyLatency.record(nanos / 1000);
+        nodesApplied.incrementAndGet();
+        if (!success) nodeFailures.incrementAndGet();
+    }
+
+    @Exported
+    public Histogram getTickDuration() {
+        return tickDuration;
+    }
+
+    @Exported
+    public Histogram getCronsEvaluatedPerTick() {
+        return cronsEvaluatedPerTick;
+    }
+
+    @Exported
+    public Histogram getCronsFiredPerTick() {
+        return cronsFiredPerTick;
+    }
+
+    @Exported
+    public Histogram getSavesPerTick() {
+        return savesPerTick;
+    }
+
+    @Exported
+    public Histogram getNodeApplyLatency() {
+        return nodeApplyLatency;
+    }
+
+    @Exported
+    public Histogram getScheduleLag() {
+        return scheduleLag;
+    }
+
+    @Exported
+    public long getTicks() {
+        return ticks.get();
+    }
+
+    @Exported
+    public long getCronsEvaluated() {
+        return cronsEvaluated.get();
+    }
+
+    @Exported
+    public long getCronsFired() {
+        return cronsFired.get();
+    }
+
+    /**
+     * @return
+     *      Missed executions that were skipped by the {@link org.jenkins.plugins.labelmanager.schedule.MisfirePolicy}.
+     */
+    @Exported
+    public long getCronsSkipped() {
+        return cronsSkipped.get();
+    }
+
+    @Exported
+    public long getSaves() {
+        return saves.get();
+    }
+
+    @Exported
+    public long getNodesApplied() {
+        return nodesApplied.get();
+    }
+
+    @Exported
+    public long getNodeFailures() {
+        return nodeFailures.get();
+    }
+
+    /**
+     * @return
+     *      Runs triggered while the worker was still busy, see
+     *      {@link org.jenkins.plugins.labelmanager.hudson.model.AsyncPeriodicWork#getOverrunCount()}.
+     */
+    @Exported
+    public long getOverruns() {
+        final LabelManagerPeriodicWork worker = LabelManagerPeriodicWork.get();
+        return worker == null ? 0 : worker.getOverrunCount();
+    }
+
+    @Exported
+    public long getCoalesced() {
+        final LabelManagerPeriodicWork worker = LabelManagerPeriodicWork.get();
+        return worker == null ? 0 : worker.getCoalescedCount();
+    }
+
+    public Api getApi() {
+        return new Api(this);
+    }
+
+    /**
+     * Serves the same JSON as <i>metrics/api/json</i> at <i>metrics/</i>.
+     */
+    public void doIndex(StaplerRequest req, StaplerResponse rsp) throws IOException, ServletException {
+        rsp.serveExposedBean(req, this, Flavor.JSON);
+    }
+}
@@ -0,0 +1,91 @@
+package org.jenkins.plugins.labelmanager.model;
+
+import hudson.util.FormValidation;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of cron validation results keyed by spec, hash seed and locale, the messages are localized.
+ *
+ * A valid cron is reported together with its previous and next execution, so such a result is only kept until the
+ * next execution passes. Results without a next execution (errors, crons that never run) are kept until evicted.
+ */
+public class CronValidationCache {
+
+    public static final int DEFAULT_SIZE = 1024;
+
+    private final Map<String, Entry> cache;
+    private long hits = 0;
+    private long misses = 0;
+
+    public CronValidationCache() {
+        this(DEFAULT_SIZE);
+    }
+
+    public CronValidationCache(final int size) {
+        this.cache = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > size;
+            }
+        };
+    }
+
+    /**
+     * @return
+     *      The cached result or null if there is none or it expired.
+     */
+    public synchronized FormValidation get(final String spec, final String seed, final Locale locale, final long currentTime) {
+        final String key = key(spec, seed, locale);
+        final Entry e = cache.get(key);
+        if (e == null || currentTime >= e.validUntil) {
+            if (e != null) cache.remove(key);
+            misses++;
+            return null;
+        }
+        hits++;
+        return e.validation;
+    }
+
+    /**
+     * @param validUntil
+     *      Time the result becomes stale, {@link Long#MAX_VALUE} if it never does.
+     */
+    public synchronized void put(final String spec, final String seed, final Locale locale, final FormValidation validation, final long validUntil) {
+        cache.put(key(spec, seed, locale), new Entry(validation, validUntil));
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized void clear() {
+        cache.clear();
+    }
+
+    private static String key(final String spec, final String seed, final Locale locale) {
+        // a newline cannot be part of the locale or the seed, the spec may contain several lines. The prefix keeps the
+        // missing seed apart from an empty one.
+        return locale.toLanguageTag() + "\n" + (seed == null ? "-" : "+" + seed) + "\n" + spec;
+    }
+
+    private static final class Entry {
+        private final FormValidation validation;
+        private final long validUntil;
+
+        Entry(FormValidation validation, long validUntil) {
+            this.validation = validation;
+            this.validUntil = validUntil;
+        }
+    }
+}
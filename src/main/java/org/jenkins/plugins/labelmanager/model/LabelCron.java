@@ -12,13 +12,21 @@ import hudson.model.AbstractDescribableImpl;
 import hudson.model.AutoCompletionCandidates;
 import hudson.model.Descriptor;
 import hudson.model.Item;
+import hudson.scheduler.CronTab;
 import hudson.scheduler.CronTabList;
 import hudson.scheduler.Hash;
 import hudson.triggers.Messages;
 import hudson.util.FormValidation;
+import org.jenkins.plugins.labelmanager.index.NodeIndex;
+import org.jenkins.plugins.labelmanager.labels.LabelOp;
+import org.jenkins.plugins.labelmanager.labels.LabelSet;
+import org.jenkins.plugins.labelmanager.model.type.LabelExpressionType;
 import org.jenkins.plugins.labelmanager.model.type.NodeType;
+import org.jenkins.plugins.labelmanager.model.type.ResourceType;
 import org.jenkins.plugins.labelmanager.model.type.TypeInterface;
+import org.jenkins.plugins.labelmanager.resources.ResourceManager;
 import org.jenkins.plugins.labelmanager.utils.JenkinsUtils;
+import org.jvnet.localizer.LocaleProvider;
 import org.kohsuke.stapler.AncestorInPath;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.QueryParameter;
@@ -50,7 +58,11 @@ public class LabelCron extends AbstractDescribableImpl<LabelCron> {
     private LinkedHashSet<String> labels;
     @XStreamConverter(value=TypeConverter.class)
     private LinkedHashSet<String> typeNames;
+    private long version;
     transient private LinkedHashSet<TypeInterface> types;
+    transient private CronTab cronTab;
+    transient private LabelSet labelSet;
+    transient private LabelOp labelOp;
 
     public LabelCron(String name, String cron, LabelAction labelAction, String labels) {
         this(name, cron, labelAction, labels, new LinkedHashSet<>());
@@ -90,6 +102,34 @@ public class LabelCron extends AbstractDescribableImpl<LabelCron> {
         return cron;
     }
 
+    /**
+     * Parses the cron once and keeps the result for the lifetime of this object.
+     *
+     * @return
+     *      The parsed cron as {@link CronTab}.
+     * @throws ANTLRException
+     *      if the cron cannot be parsed.
+     */
+    public CronTab getCronTab() throws ANTLRException {
+        if (cronTab == null) {
+            cronTab = new CronTab(cron);
+        }
+        return cronTab;
+    }
+
+    /**
+     * @return
+     *      Incremented on every change of this cron, used to detect concurrent updates. 0 if never saved.
+     */
+    @Exported
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     @Exported
     public LabelAction getLabelAction() {
         return labelAction;
@@ -105,30 +145,77 @@ public class LabelCron extends AbstractDescribableImpl<LabelCron> {
         return labels;
     }
 
+    /**
+     * @return
+     *      The labels of this cron interned once as {@link LabelSet}.
+     */
+    public LabelSet getLabelSet() {
+        if (labelSet == null || !labelSet.isCurrent()) {
+            // interned again after the label table was replaced
+            labelOp = null;
+            labelSet = LabelSet.of(labels);
+        }
+        return labelSet;
+    }
+
+    /**
+     * Applies the {@link LabelAction} of this cron to the given labels.
+     *
+     * @param current
+     *      The labels before this cron runs.
+     * @return
+     *      The labels after this cron ran.
+     */
+    public LabelSet apply(final LabelSet current) {
+        return getLabelOp().apply(current);
+    }
+
+    /**
+     * @return
+     *      The {@link LabelAction} of this cron as {@link LabelOp}, so it can be fused with other crons.
+     */
+    public LabelOp getLabelOp() {
+        final LabelSet set = getLabelSet();
+        if (labelOp == null) {
+            labelOp = LabelOp.of(labelAction, set);
+        }
+        return labelOp;
+    }
+
     @Exported
     public String getTypeString() {
         return String.join(" ", typeNames).trim();
     }
 
+    /**
+     * The types are only built from the names once (they are not persisted), later calls return the same objects so
+     * anything they resolved stays cached.
+     */
     @Exported
     public LinkedHashSet<TypeInterface> getTypes() {
-        return convertStringsToNodeTypes(typeNames);
+        if (types == null) {
+            types = convertStringsToNodeTypes(typeNames);
+        }
+        return types;
     }
 
     public boolean addType(TypeInterface type) {
-        return types.add(type);
+        typeNames.add(type.getName());
+        return getTypes().add(type);
     }
 
     public boolean addAllTypes(List<TypeInterface> types) {
-        return this.types.addAll(types);
+        types.forEach(t -> typeNames.add(t.getName()));
+        return getTypes().addAll(types);
     }
 
     public boolean removeType(TypeInterface type) {
-        return types.remove(type);
+        typeNames.remove(type.getName());
+        return getTypes().remove(type);
     }
 
     private LinkedHashSet<TypeInterface> convertStringsToNodeTypes(LinkedHashSet<String> typeNames) {
-        return typeNames.stream().map(NodeType::new).collect(Collectors.toCollection(LinkedHashSet::new));
+        return typeNames.stream().map(LabelCron::typeFromName).collect(Collectors.toCollection(LinkedHashSet::new));
     }
 
     @Override
@@ -136,6 +223,22 @@ public class LabelCron extends AbstractDescribableImpl<LabelCron> {
         return name + typeNames + "->" + labelAction + labels;
     }
 
+    /**
+     * Unlike {@link #equals(Object)}, which only compares names, this compares everything that is configured. The
+     * {@link #getVersion() version} is not part of the definition.
+     *
+     * @return
+     *      true if the other cron has the same name, cron, action, labels and types, in the same order.
+     */
+    public boolean sameDefinition(LabelCron other) {
+        return other != null
+                && Objects.equals(name, other.name)
+                && Objects.equals(cron, other.cron)
+                && labelAction == other.labelAction
+                && new ArrayList<>(labels).equals(new ArrayList<>(other.labels))
+                && new ArrayList<>(typeNames).equals(new ArrayList<>(other.typeNames));
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
@@ -180,6 +283,8 @@ public class LabelCron extends AbstractDescribableImpl<LabelCron> {
     @Extension
     public static class DescriptorImpl extends Descriptor<LabelCron> {
 
+        private static final CronValidationCache VALIDATIONS = new CronValidationCache();
+
         @Override
         public String getDisplayName() {
             return "Cron";
@@ -195,18 +300,34 @@ public class LabelCron extends AbstractDescribableImpl<LabelCron> {
             return FormValidation.ok();
         }
 
+        /**
+         * Validation runs on every keystroke and for every cron on submit, results are cached by spec, seed and the
+         * locale of the request.
+         */
         public FormValidation doCheckCron(@QueryParameter String value, @AncestorInPath Item item) {
+            final String spec = Util.fixNull(value);
+            final String seed = item != null ? item.getFullName() : null;
+            final Locale locale = LocaleProvider.getLocale();
+            final FormValidation cached = VALIDATIONS.get(spec, seed, locale, System.currentTimeMillis());
+            if (cached != null) return cached;
+            long validUntil = Long.MAX_VALUE;
+            FormValidation result;
             try {
-                CronTabList ctl = CronTabList.create(Util.fixNull(value), item != null ? Hash.from(item.getFullName()) : null);
+                CronTabList ctl = CronTabList.create(spec, seed != null ? Hash.from(seed) : null);
                 Collection<FormValidation> validations = new ArrayList<>();
                 updateCronValidationsForSanity(validations, ctl);
-                updateCronValidationsForNextRun(validations, ctl);
-                return FormValidation.aggregate(validations);
+                Calendar next = updateCronValidationsForNextRun(validations, ctl);
+                // the message names the next run, it is stale once that passed
+                if (next != null) validUntil = next.getTimeInMillis();
+                result = FormValidation.aggregate(validations);
             } catch (ANTLRException e) {
-                if (value.trim().indexOf('\n')==-1 && value.contains("**"))
-                    return FormValidation.error(Messages.TimerTrigger_MissingWhitespace());
-                return FormValidation.error(e.getMessage());
+                if (spec.trim().indexOf('\n')==-1 && spec.contains("**"))
+                    result = FormValidation.error(Messages.TimerTrigger_MissingWhitespace());
+                else
+                    result = FormValidation.error(e.getMessage());
             }
+            VALIDATIONS.put(spec, seed, locale, result, validUntil);
+            return result;
         }
 
         private void updateCronValidationsForSanity(Collection<FormValidation> validations, CronTabList ctl) {
@@ -214,15 +335,21 @@ public class LabelCron extends AbstractDescribableImpl<LabelCron> {
             if(msg!=null)  validations.add(FormValidation.warning(msg));
         }
 
+        /**
+         * @return
+         *      The next run or null if the cron never runs.
+         */
         @SuppressRestrictedWarnings(CronTabList.class)
-        private void updateCronValidationsForNextRun(Collection<FormValidation> validations, CronTabList ctl) {
+        private Calendar updateCronValidationsForNextRun(Collection<FormValidation> validations, CronTabList ctl) {
             Calendar prev = ctl.previous();
             Calendar next = ctl.next();
             if (prev != null && next != null) {
                 DateFormat fmt = DateFormat.getDateTimeInstance(DateFormat.FULL, DateFormat.FULL);
                 validations.add(FormValidation.ok(Messages.TimerTrigger_would_last_have_run_at_would_next_run_at(fmt.format(prev.getTime()), fmt.format(next.getTime()))));
+                return next;
             } else {
                 validations.add(FormValidation.warning(Messages.TimerTrigger_no_schedules_so_will_never_run()));
+                return null;
             }
         }
 
@@ -250,12 +377,46 @@ public class LabelCron extends AbstractDescribableImpl<LabelCron> {
         public FormValidation doCheckTypeString(@QueryParameter String value) {
             value = Util.fixEmptyAndTrim(value);
             if (value == null) return FormValidation.error("Node names cannot be empty!");
-            List<String> nodeNameList = JenkinsUtils.getAllNodeNamesForJelly();
+            final NodeIndex index = NodeIndex.get();
             Collection<FormValidation> validations = new ArrayList<>();
-            List<TypeInterface> list = typesFromString(value);
-            validations.addAll(list.stream().filter(type -> !JenkinsUtils.getAllNodeNames().contains(type.getName())).map(type -> FormValidation.error("Invalid node (" + type.getName() + "), choose from: " + nodeNameList)).collect(Collectors.toList()));
+            List<TypeInterface> invalid = new ArrayList<>();
+            Map<String, String> resources = null;
+            for (TypeInterface type : typesFromString(value)) {
+                if (type instanceof LabelExpressionType) {
+                    validations.add(checkLabelExpression((LabelExpressionType) type));
+                } else if (type instanceof ResourceType) {
+                    final ResourceManager manager = ResourceManager.get();
+                    if (manager == null) {
+                        validations.add(FormValidation.error("Resources need the lockable-resources plugin (" + type.getName() + ")"));
+                        continue;
+                    }
+                    if (resources == null) resources = manager.getLabels();
+                    if (!resources.containsKey(((ResourceType) type).getResourceName())) {
+                        validations.add(FormValidation.error("Invalid resource (" + ((ResourceType) type).getResourceName() + ")"));
+                    }
+                } else if (!index.hasNode(type.getName())) {
+                    invalid.add(type);
+                }
+            }
+            if (!invalid.isEmpty()) {
+                // only build the list of choices when it is shown
+                List<String> nodeNameList = JenkinsUtils.getAllNodeNamesForJelly();
+                invalid.forEach(type -> validations.add(FormValidation.error("Invalid node (" + type.getName() + "), choose from: " + nodeNameList)));
+            }
             return FormValidation.aggregate(validations);
         }
+
+        private FormValidation checkLabelExpression(LabelExpressionType type) {
+            try {
+                type.getLabel();
+            } catch (ANTLRException e) {
+                return FormValidation.error("Invalid label expression (" + type.getExpression() + "): " + e.getMessage());
+            }
+            if (type.get().isEmpty()) {
+                return FormValidation.warning("Label expression (" + type.getExpression() + ") matches no nodes right now.");
+            }
+            return FormValidation.ok();
+        }
     }//end class
 
     public static class LabelConverter extends CollectionConverter {
@@ -316,7 +477,17 @@ public class LabelCron extends AbstractDescribableImpl<LabelCron> {
 
     private static List<TypeInterface> typesFromString(String typeString) {
         if (typeString == null || typeString.length() <= 0) return Collections.emptyList();
-        return cleanTypeString(typeString).stream().map(NodeType::new).collect(Collectors.toCollection(LinkedList::new));
+        return cleanTypeString(typeString).stream().map(LabelCron::typeFromName).collect(Collectors.toCollection(LinkedList::new));
+    }
+
+    /**
+     * Names starting with {@link LabelExpressionType#PREFIX} select nodes by label expression, names starting with
+     * {@link ResourceType#PREFIX} are resources, anything else is a node.
+     */
+    private static TypeInterface typeFromName(String name) {
+        if (LabelExpressionType.isLabelExpression(name)) return new LabelExpressionType(name);
+        if (ResourceType.isResource(name)) return new ResourceType(name);
+        return new NodeType(name);
     }
 
     private static List<String> typeNamesFromString(String typeString) {
@@ -0,0 +1,88 @@
+package org.jenkins.plugins.labelmanager.model.type;
+
+import antlr.ANTLRException;
+import hudson.model.Label;
+import hudson.model.Node;
+import org.jenkins.plugins.labelmanager.index.LabelIndex;
+import org.jenkins.plugins.labelmanager.index.NodeIndex;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Selects all nodes matching a Jenkins label expression, written as <i>label:linux&amp;&amp;docker&amp;&amp;!gpu</i>
+ * or quoted when it contains spaces, <i>"label:linux &amp;&amp; docker"</i>.
+ *
+ * The nodes are resolved through the {@link LabelIndex} and kept until the nodes change.
+ */
+public class LabelExpressionType implements TypeInterface {
+
+    public static final String PREFIX = "label:";
+
+    private String expression;
+    transient private Label label;
+    transient private List<Node> nodes;
+    transient private long nodesGeneration;
+
+    public LabelExpressionType(String name) {
+        if (name != null && name.startsWith("\"") && name.endsWith("\""))
+            name = name.replaceAll("^\"|\"$", "");
+        this.expression = isLabelExpression(name) ? name.substring(PREFIX.length()).trim() : name;
+    }
+
+    public static boolean isLabelExpression(String name) {
+        return name != null && name.replaceAll("^\"", "").startsWith(PREFIX);
+    }
+
+    /**
+     * @return
+     *      The type as it is written in the type string, quoted if the expression contains spaces.
+     */
+    @Override
+    public String getName() {
+        final String name = PREFIX + expression;
+        return expression.matches(".*\\s.*") ? "\"" + name + "\"" : name;
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    /**
+     * @throws ANTLRException
+     *      if the expression cannot be parsed.
+     */
+    public Label getLabel() throws ANTLRException {
+        if (label == null) {
+            label = Label.parseExpression(expression);
+        }
+        return label;
+    }
+
+    /**
+     * @return
+     *      The nodes currently matching the expression, empty if it cannot be parsed.
+     */
+    @Override
+    public List<Node> get() {
+        final long generation = NodeIndex.get().getGeneration();
+        List<Node> n = nodes;
+        if (n == null || nodesGeneration != generation) {
+            try {
+                n = LabelIndex.get().resolve(getLabel());
+            } catch (ANTLRException e) {
+                n = Collections.emptyList();
+            }
+            nodes = n;
+            nodesGeneration = generation;
+        }
+        return n;
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+
+    private static final long serialVersionUID = 1L;
+}
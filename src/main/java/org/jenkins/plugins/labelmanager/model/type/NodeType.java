@@ -1,7 +1,7 @@
 package org.jenkins.plugins.labelmanager.model.type;
 
 import hudson.model.Node;
-import jenkins.model.Jenkins;
+import org.jenkins.plugins.labelmanager.index.NodeIndex;
 
 import java.io.IOException;
 import java.io.Serializable;
@@ -17,6 +17,8 @@ public class NodeType implements TypeInterface {
     private String name;
     private String fullName;
     transient private Optional<Integer> numberOfExecutors;
+    transient private Node node;
+    transient private long nodeGeneration;
 
     public NodeType(Node node) {
         this(node.getNodeName(), Optional.empty());
@@ -56,12 +58,20 @@ public class NodeType implements TypeInterface {
         return numberOfExecutors;
     }
 
+    /**
+     * Resolves the node through the {@link NodeIndex} and keeps the reference until the nodes change.
+     */
     @Override
     public Node get() {
-        if (name.compareToIgnoreCase(MASTER_NODE) == 0) {
-            return Jenkins.getActiveInstance();
+        final NodeIndex index = NodeIndex.get();
+        final long generation = index.getGeneration();
+        Node n = node;
+        if (n == null || nodeGeneration != generation) {
+            n = index.getNode(name);
+            node = n;
+            nodeGeneration = generation;
         }
-        return Jenkins.getActiveInstance().getNode(name);
+        return n;
     }
 
     private void writeObject(java.io.ObjectOutputStream stream) throws IOException {
@@ -1,11 +1,56 @@
 package org.jenkins.plugins.labelmanager.model.type;
 
-import java.io.Serializable;
+import org.jenkins.plugins.labelmanager.resources.ResourceManager;
 
 /**
- * implements Serializable
+ * A resource of the {@link ResourceManager}, written as <i>resource:name</i> or quoted when the name contains spaces,
+ * <i>"resource:my printer"</i>. The labels of resources are changed in bulk, see
+ * {@link org.jenkins.plugins.labelmanager.batch.ResourceBatch}.
  */
-public class ResourceType {
+public class ResourceType implements TypeInterface {
+
+    public static final String PREFIX = "resource:";
+
+    private String name;
+
+    public ResourceType(String name) {
+        if (name != null && name.startsWith("\"") && name.endsWith("\""))
+            name = name.replaceAll("^\"|\"$", "");
+        this.name = isResource(name) ? name.substring(PREFIX.length()).trim() : name;
+    }
+
+    public static boolean isResource(String name) {
+        return name != null && name.replaceAll("^\"", "").startsWith(PREFIX);
+    }
+
+    /**
+     * @return
+     *      The type as it is written in the type string, quoted if the name contains spaces.
+     */
+    @Override
+    public String getName() {
+        final String n = PREFIX + name;
+        return name.matches(".*\\s.*") ? "\"" + n + "\"" : n;
+    }
+
+    public String getResourceName() {
+        return name;
+    }
+
+    /**
+     * @return
+     *      The name of the resource if the {@link ResourceManager} knows it, otherwise null.
+     */
+    @Override
+    public String get() {
+        final ResourceManager manager = ResourceManager.get();
+        return manager != null && manager.getLabels().containsKey(name) ? name : null;
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
 
     private static final long serialVersionUID = 1L;
 }
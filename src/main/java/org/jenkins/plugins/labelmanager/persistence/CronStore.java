@@ -0,0 +1,274 @@
+package org.jenkins.plugins.labelmanager.persistence;
+
+import hudson.Util;
+import hudson.XmlFile;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import hudson.util.XStream2;
+import org.jenkins.plugins.labelmanager.model.LabelCron;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stores every {@link LabelCron} in its own small file, <i>crons/&lt;name&gt;.xml</i>, plus an index with the cron
+ * order, <i>crons.xml</i>.
+ *
+ * The XML last written for every cron is remembered as a digest, so {@link #sync(Collection)} only rewrites the
+ * crons that really changed and the index only when crons were added, removed or reordered. Loading reads the cron
+ * files in parallel. File names that are not lower case get a hash of the name appended, so names that only differ in
+ * case do not share a file on a case insensitive file system.
+ *
+ * The index is the commit point: new cron files are written before it and removed ones are deleted after it, every
+ * file is replaced atomically by {@link XmlFile}. A crash in between leaves cron files the index does not list, load
+ * deletes them, and a cron listed in the index without its file is skipped.
+ */
+public class CronStore {
+
+    private static final Logger LOGGER = Logger.getLogger(CronStore.class.getName());
+
+    private static final XStream2 XSTREAM = new XStream2();
+
+    static {
+        XSTREAM.alias("labelCron", LabelCron.class);
+        XSTREAM.processAnnotations(LabelCron.class);
+    }
+
+    private final File root;
+    private final File cronDir;
+    private final Map<String, String> digests = new ConcurrentHashMap<>();
+    private List<String> order = new ArrayList<>();
+
+    /**
+     * @param root
+     *      Directory of the store, usually <i>$JENKINS_HOME/label-manager</i>.
+     */
+    public CronStore(File root) {
+        this.root = root;
+        this.cronDir = new File(root, "crons");
+    }
+
+    /**
+     * @return
+     *      true if the store was written before, false if the crons still have to be migrated into it.
+     */
+    public boolean exists() {
+        return getIndexXml().exists();
+    }
+
+    /**
+     * Reads all crons in index order. Crons that cannot be read are logged and left out.
+     *
+     * @throws IOException
+     *      if the index cannot be read.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized LinkedHashSet<LabelCron> load() throws IOException {
+        final LinkedHashSet<LabelCron> crons = new LinkedHashSet<>();
+        digests.clear();
+        order = new ArrayList<>();
+        if (!exists()) {
+            return crons;
+        }
+        final List<String> names = (List<String>) getIndexXml().read();
+        removeOrphans(names);
+        final int threads = Math.max(1, Math.min(names.size(), Runtime.getRuntime().availableProcessors()));
+        final ExecutorService pool = Executors.newFixedThreadPool(threads, new NamingThreadFactory(new DaemonThreadFactory(), "Label Manager load"));
+        try {
+            final List<Future<LabelCron>> futures = new ArrayList<>(names.size());
+            for (String name : names) {
+                futures.add(pool.submit(() -> read(name)));
+            }
+            for (Future<LabelCron> f : futures) {
+                final LabelCron c = f.get();
+                if (c != null && crons.add(c)) {
+                    order.add(c.getName());
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading crons", ex);
+        } catch (ExecutionException ex) {
+            throw new IOException("Failed to load crons", ex.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return crons;
+    }
+
+    private LabelCron read(final String name) {
+        final XmlFile f = getCronXml(name);
+        if (!f.exists()) {
+            LOGGER.log(Level.WARNING, "Cron " + name + " is listed in the index but " + f + " is missing, skipping it!");
+            return null;
+        }
+        try {
+            final LabelCron c = (LabelCron) f.read();
+            digests.put(name, digest(c));
+            return c;
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.log(Level.SEVERE, "Unable to load cron " + name + " from " + f + ", skipping it!", ex);
+            return null;
+        }
+    }
+
+    /**
+     * Deletes the cron files not listed in the index, left behind by a write that did not reach the index.
+     */
+    private void removeOrphans(final List<String> names) {
+        final Set<String> listed = new HashSet<>();
+        for (String name : names) {
+            listed.add(fileName(name));
+        }
+        final File[] files = cronDir.listFiles((dir, n) -> n.endsWith(".xml"));
+        if (files == null) return;
+        for (File f : files) {
+            if (!listed.contains(f.getName())) {
+                LOGGER.log(Level.INFO, "Deleting " + f + ", it is not listed in the index");
+                if (!f.delete()) {
+                    LOGGER.log(Level.WARNING, "Unable to delete " + f);
+                }
+            }
+        }
+    }
+
+    /**
+     * Brings the store in line with the given crons: changed and new crons are written, the index is written if the
+     * names or their order changed and removed crons are deleted last.
+     *
+     * @return
+     *      The number of files written or deleted.
+     * @throws IOException
+     *      if a file cannot be written.
+     */
+    public int sync(final Collection<LabelCron> crons) throws IOException {
+        return sync(crons, crons);
+    }
+
+    /**
+     * Like {@link #sync(Collection)}, but only the given crons are compared with what was written before.
+     *
+     * @param crons
+     *      All crons in configuration order.
+     * @param changed
+     *      The crons that may have changed, all others are known to be unchanged.
+     */
+    public synchronized int sync(final Collection<LabelCron> crons, final Collection<LabelCron> changed) throws IOException {
+        int files = 0;
+        final List<String> names = new ArrayList<>(crons.size());
+        for (LabelCron c : crons) {
+            names.add(c.getName());
+        }
+        for (LabelCron c : changed) {
+            final String digest = digest(c);
+            if (!digest.equals(digests.get(c.getName()))) {
+                getCronXml(c.getName()).write(c);
+                digests.put(c.getName(), digest);
+                files++;
+            }
+        }
+        final Set<String> removed = new HashSet<>(digests.keySet());
+        removed.removeAll(names);
+        if (!names.equals(order) || !exists()) {
+            getIndexXml().write(names);
+            order = names;
+            files++;
+        }
+        for (String name : removed) {
+            digests.remove(name);
+            if (getCronXml(name).getFile().delete()) files++;
+        }
+        return files;
+    }
+
+    /**
+     * Writes and deletes single crons without looking at the others. New crons are appended to the index, which is
+     * only written when crons were added or removed.
+     *
+     * @param changed
+     *      The new and changed crons.
+     * @param removed
+     *      The names of the removed crons.
+     * @return
+     *      The number of files written or deleted.
+     * @throws IOException
+     *      if a file cannot be written.
+     */
+    public synchronized int update(final Collection<LabelCron> changed, final Collection<String> removed) throws IOException {
+        int files = 0;
+        boolean indexChanged = !exists();
+        final List<String> deleted = new ArrayList<>();
+        for (String name : removed) {
+            if (digests.remove(name) != null) {
+                deleted.add(name);
+                indexChanged = true;
+            }
+        }
+        if (!deleted.isEmpty()) {
+            final List<String> names = new ArrayList<>(order);
+            names.removeAll(new HashSet<>(deleted));
+            order = names;
+        }
+        for (LabelCron c : changed) {
+            final String digest = digest(c);
+            final String before = digests.get(c.getName());
+            if (!digest.equals(before)) {
+                getCronXml(c.getName()).write(c);
+                digests.put(c.getName(), digest);
+                files++;
+            }
+            if (before == null) {
+                order.add(c.getName());
+                indexChanged = true;
+            }
+        }
+        if (indexChanged) {
+            getIndexXml().write(order);
+            files++;
+        }
+        for (String name : deleted) {
+            // unless it was added again
+            if (!digests.containsKey(name) && getCronXml(name).getFile().delete()) files++;
+        }
+        return files;
+    }
+
+    private static String digest(final LabelCron c) {
+        return Util.getDigestOf(XSTREAM.toXML(c));
+    }
+
+    private XmlFile getIndexXml() {
+        return new XmlFile(XSTREAM, new File(root, "crons.xml"));
+    }
+
+    private XmlFile getCronXml(final String name) {
+        return new XmlFile(XSTREAM, new File(cronDir, fileName(name)));
+    }
+
+    /**
+     * @return
+     *      The encoded name, with a hash of the name appended unless it is lower case already.
+     */
+    static String fileName(final String name) {
+        final String encoded = Util.rawEncode(name);
+        if (encoded.equals(encoded.toLowerCase(Locale.ENGLISH))) {
+            return encoded + ".xml";
+        }
+        return encoded + "~" + Util.getDigestOf(name).substring(0, 8) + ".xml";
+    }
+}
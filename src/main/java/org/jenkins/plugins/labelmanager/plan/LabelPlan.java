@@ -0,0 +1,73 @@
+package org.jenkins.plugins.labelmanager.plan;
+
+import hudson.model.Api;
+import org.jenkins.plugins.labelmanager.batch.NodeBatch;
+import org.jenkins.plugins.labelmanager.batch.NodeChange;
+import org.jenkins.plugins.labelmanager.schedule.CronFire;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Result of a dry run: which crons run in a window and how every affected node looks at its end. Built from a
+ * {@link NodeBatch} that was staged like a real run but never committed.
+ */
+@ExportedBean(defaultVisibility = 999)
+public class LabelPlan {
+
+    private final long from;
+    private final long to;
+    private final List<String> crons = new ArrayList<>();
+    private final List<PlannedNode> nodes = new ArrayList<>();
+
+    public LabelPlan(long from, long to, List<CronFire> fires, NodeBatch batch) {
+        this.from = from;
+        this.to = to;
+        for (CronFire fire : fires) {
+            crons.add(fire.getCron().getName());
+        }
+        for (NodeChange change : batch.getChanges()) {
+            nodes.add(new PlannedNode(change));
+        }
+    }
+
+    @Exported
+    public long getFrom() {
+        return from;
+    }
+
+    @Exported
+    public long getTo() {
+        return to;
+    }
+
+    public Date getFromDate() {
+        return new Date(from);
+    }
+
+    public Date getToDate() {
+        return new Date(to);
+    }
+
+    /**
+     * @return
+     *      Names of the crons running in the window, in the order they apply.
+     */
+    @Exported
+    public List<String> getCrons() {
+        return Collections.unmodifiableList(crons);
+    }
+
+    @Exported
+    public List<PlannedNode> getNodes() {
+        return Collections.unmodifiableList(nodes);
+    }
+
+    public Api getApi() {
+        return new Api(this);
+    }
+}
@@ -0,0 +1,71 @@
+package org.jenkins.plugins.labelmanager.plan;
+
+import org.jenkins.plugins.labelmanager.batch.NodeChange;
+import org.jenkins.plugins.labelmanager.model.LabelCron;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Labels and executors of a node before and after the planned window.
+ */
+@ExportedBean(defaultVisibility = 999)
+public class PlannedNode {
+
+    private final String name;
+    private final String labelsBefore;
+    private final String labelsAfter;
+    private final int executorsBefore;
+    private final int executorsAfter;
+    private final List<String> crons;
+
+    PlannedNode(NodeChange change) {
+        this.name = change.getNodeName();
+        this.labelsBefore = change.getOriginalLabels().toLabelString();
+        this.labelsAfter = change.getLabelString();
+        this.executorsBefore = change.getNode().getNumExecutors();
+        this.executorsAfter = change.getNumberOfExecutors().orElse(executorsBefore);
+        this.crons = change.getCrons().stream().map(LabelCron::getName).collect(Collectors.toList());
+    }
+
+    @Exported
+    public String getName() {
+        return name;
+    }
+
+    @Exported
+    public String getLabelsBefore() {
+        return labelsBefore;
+    }
+
+    @Exported
+    public String getLabelsAfter() {
+        return labelsAfter;
+    }
+
+    @Exported
+    public int getExecutorsBefore() {
+        return executorsBefore;
+    }
+
+    @Exported
+    public int getExecutorsAfter() {
+        return executorsAfter;
+    }
+
+    /**
+     * @return
+     *      Names of the crons changing this node, in the order they apply.
+     */
+    @Exported
+    public List<String> getCrons() {
+        return crons;
+    }
+
+    @Exported
+    public boolean isChanged() {
+        return !labelsBefore.equals(labelsAfter) || executorsBefore != executorsAfter;
+    }
+}
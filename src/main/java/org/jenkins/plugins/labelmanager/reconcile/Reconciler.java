@@ -0,0 +1,174 @@
+package org.jenkins.plugins.labelmanager.reconcile;
+
+import hudson.model.Node;
+import org.jenkins.plugins.labelmanager.batch.NodeBatch;
+import org.jenkins.plugins.labelmanager.batch.NodeChange;
+import org.jenkins.plugins.labelmanager.index.NodeIndex;
+import org.jenkins.plugins.labelmanager.labels.LabelOp;
+import org.jenkins.plugins.labelmanager.labels.LabelSet;
+import org.jenkins.plugins.labelmanager.model.LabelCron;
+import org.jenkins.plugins.labelmanager.schedule.CronFire;
+import org.jenkins.plugins.labelmanager.schedule.CronSchedule;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Declarative mode: besides applying crons when they fire, the state every node should have right now is derived from
+ * the last execution of every cron, and only the nodes that drifted from it are written again.
+ *
+ * The desired labels of a node are its live labels with the last executions fused in time order, see {@link LabelOp},
+ * and the desired executors are set by the last of them. They only change when a cron fires, the crons are edited or
+ * the nodes are reconfigured, so they are cached until then. A pass compares each node's live label string and
+ * executors with the ones it had when it was last found in sync, so a pass over nodes that did not drift neither
+ * computes labels nor writes anything. Label expressions are matched against the labels the nodes have when the
+ * desired state is calculated. Resources are not reconciled, the stager should not read them, see
+ * {@link org.jenkins.plugins.labelmanager.LabelManagerPeriodicWork#stageNodes(LabelCron, NodeBatch)}.
+ */
+public class Reconciler {
+
+    private static final Logger LOGGER = Logger.getLogger(Reconciler.class.getName());
+
+    private final Supplier<Collection<LabelCron>> crons;
+    private final BiConsumer<LabelCron, NodeBatch> stager;
+    private final Supplier<Long> nextExecution;
+    private final Map<String, Target> targets = new HashMap<>();
+    private final Map<String, Snapshot> inSync = new HashMap<>();
+    private final Map<String, Long> scheduledTimes = new HashMap<>();
+    private volatile boolean stale = true;
+    private long generation = -1;
+    private long validUntil;
+
+    /**
+     * @param crons
+     *      All configured crons, in configuration order.
+     * @param stager
+     *      Stages a cron in a batch exactly like a real run.
+     * @param nextExecution
+     *      The next time any cron fires, or -1 if none does.
+     */
+    public Reconciler(Supplier<Collection<LabelCron>> crons, BiConsumer<LabelCron, NodeBatch> stager, Supplier<Long> nextExecution) {
+        this.crons = crons;
+        this.stager = stager;
+        this.nextExecution = nextExecution;
+    }
+
+    /**
+     * Forgets the desired state, it is calculated again by the next pass.
+     */
+    public void invalidate() {
+        stale = true;
+    }
+
+    /**
+     * Stages the desired state of every node that drifted from it. Nodes already in sync are not part of the batch.
+     */
+    public synchronized NodeBatch reconcile(final long now) {
+        final long gen = NodeIndex.get().getGeneration();
+        if (stale || gen != generation || now >= validUntil) {
+            rebuild(now, gen);
+        }
+        final NodeBatch batch = new NodeBatch();
+        for (Target t : targets.values()) {
+            final Node node = t.node;
+            final Snapshot snapshot = new Snapshot(node);
+            if (snapshot.equals(inSync.get(t.name))) {
+                continue;
+            }
+            final LabelSet current = LabelSet.parse(node.getLabelString());
+            final boolean drifted = !t.op.apply(current).equals(current)
+                    || t.executors != null && node.getNumExecutors() != t.executors;
+            if (!drifted) {
+                inSync.put(t.name, snapshot);
+                continue;
+            }
+            LOGGER.log(Level.FINE, "Node (" + t.name + ") drifted from its desired state, reapplying " + t.crons);
+            final NodeChange change = batch.get(node);
+            for (LabelCron c : t.crons) {
+                change.stage(c);
+            }
+            if (t.executors != null) {
+                change.setNumberOfExecutors(t.executors);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * @return
+     *      Time of the last execution of each cron the desired state was calculated from, by cron name.
+     */
+    public synchronized Map<String, Long> getScheduledTimes() {
+        return Collections.unmodifiableMap(new HashMap<>(scheduledTimes));
+    }
+
+    private void rebuild(final long now, final long gen) {
+        stale = false;
+        generation = gen;
+        final long next = nextExecution.get();
+        validUntil = next < 0 ? Long.MAX_VALUE : next;
+        targets.clear();
+        inSync.clear();
+        scheduledTimes.clear();
+        final List<CronFire> fires = CronSchedule.lastExecutions(crons.get(), 0, now);
+        final NodeBatch desired = new NodeBatch();
+        for (CronFire fire : fires) {
+            scheduledTimes.put(fire.getCron().getName(), fire.getScheduledTime());
+            stager.accept(fire.getCron(), desired);
+        }
+        for (NodeChange change : desired.getChanges()) {
+            targets.put(change.getNodeName(), new Target(change));
+        }
+    }
+
+    /**
+     * What the node looked like when it was found in sync. The label string is kept, not a hash of it, so no change
+     * can go unnoticed.
+     */
+    private static final class Snapshot {
+        private final String labels;
+        private final int executors;
+
+        Snapshot(Node node) {
+            this.labels = node.getLabelString();
+            this.executors = node.getNumExecutors();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Snapshot)) return false;
+            final Snapshot s = (Snapshot) obj;
+            return executors == s.executors && Objects.equals(labels, s.labels);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(labels) * 31 + executors;
+        }
+    }
+
+    private static final class Target {
+        private final String name;
+        private final Node node;
+        private final List<LabelCron> crons;
+        private final LabelOp op;
+        private final Integer executors;
+
+        Target(NodeChange change) {
+            this.name = change.getNodeName();
+            this.node = change.getNode();
+            this.crons = new ArrayList<>(change.getCrons());
+            this.op = change.getOp();
+            this.executors = change.getNumberOfExecutors().orElse(null);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.jenkins.plugins.labelmanager.resources;
+
+import hudson.Extension;
+import org.jenkins.plugins.lockableresources.LockableResource;
+import org.jenkins.plugins.lockableresources.LockableResourcesManager;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link ResourceManager} for the lockable-resources plugin, only loaded when the plugin is installed.
+ *
+ * {@link LockableResourcesManager} guards its resources with its own monitor, the labels are read and written while
+ * holding it once for all resources and the configuration is saved once.
+ */
+@Extension(optional = true, ordinal = -1)
+public class LockableResourcesAdapter extends ResourceManager {
+
+    @Override
+    public Map<String, String> getLabels() {
+        final LockableResourcesManager manager = LockableResourcesManager.get();
+        final Map<String, String> labels = new LinkedHashMap<>();
+        synchronized (manager) {
+            for (LockableResource r : manager.getResources()) {
+                labels.put(r.getName(), r.getLabels());
+            }
+        }
+        return labels;
+    }
+
+    @Override
+    public void setLabels(final Map<String, String> labels) throws IOException {
+        if (labels.isEmpty()) return;
+        final LockableResourcesManager manager = LockableResourcesManager.get();
+        synchronized (manager) {
+            for (LockableResource r : manager.getResources()) {
+                final String l = labels.get(r.getName());
+                if (l != null) r.setLabels(l);
+            }
+            manager.save();
+        }
+    }
+}
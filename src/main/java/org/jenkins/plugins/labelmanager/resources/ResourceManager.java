@@ -0,0 +1,40 @@
+package org.jenkins.plugins.labelmanager.resources;
+
+import hudson.ExtensionList;
+import hudson.ExtensionPoint;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Access to the labels of a set of resources, for example the lockable resources. Implementations are expected to
+ * work on the whole set at once, so a tick with many resources takes one lock and does one save.
+ */
+public abstract class ResourceManager implements ExtensionPoint {
+
+    /**
+     * @return
+     *      A snapshot of the space separated labels of every resource by resource name.
+     */
+    public abstract Map<String, String> getLabels();
+
+    /**
+     * Replaces the labels of all given resources under a single lock and persists them once. Resources that do not
+     * exist (anymore) are ignored.
+     *
+     * @param labels
+     *      The new space separated labels by resource name.
+     * @throws IOException
+     *      if the resources could not be saved.
+     */
+    public abstract void setLabels(Map<String, String> labels) throws IOException;
+
+    /**
+     * @return
+     *      The registered manager with the highest ordinal, or null if no resource plugin is installed.
+     */
+    public static ResourceManager get() {
+        final ExtensionList<ResourceManager> all = ExtensionList.lookup(ResourceManager.class);
+        return all.isEmpty() ? null : all.get(0);
+    }
+}
@@ -0,0 +1,44 @@
+package org.jenkins.plugins.labelmanager.schedule;
+
+import org.jenkins.plugins.labelmanager.model.LabelCron;
+
+/**
+ * A single due execution of a cron taken off the {@link CronSchedule}.
+ */
+public class CronFire {
+
+    private final LabelCron cron;
+    private final long scheduledTime;
+    private final boolean catchUp;
+
+    CronFire(LabelCron cron, long scheduledTime, boolean catchUp) {
+        this.cron = cron;
+        this.scheduledTime = scheduledTime;
+        this.catchUp = catchUp;
+    }
+
+    public LabelCron getCron() {
+        return cron;
+    }
+
+    /**
+     * @return
+     *      The time this execution was scheduled for.
+     */
+    public long getScheduledTime() {
+        return scheduledTime;
+    }
+
+    /**
+     * @return
+     *      true if this execution was missed and is only caught up now.
+     */
+    public boolean isCatchUp() {
+        return catchUp;
+    }
+
+    @Override
+    public String toString() {
+        return cron.getName() + "@" + scheduledTime + (catchUp ? " (catch-up)" : "");
+    }
+}
@@ -0,0 +1,385 @@
+package org.jenkins.plugins.labelmanager.schedule;
+
+import antlr.ANTLRException;
+import hudson.scheduler.CronTab;
+import org.jenkins.plugins.labelmanager.model.LabelCron;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Index of all configured crons ordered by their next execution time.
+ *
+ * Each {@link LabelCron} is parsed once when it enters the schedule and its next execution is cached, so a tick only
+ * has to pop the crons that are due instead of re-parsing and re-calculating every cron.
+ *
+ * For every cron the last evaluated execution is kept as a watermark. The next execution is always calculated from the
+ * watermark, so an execution is never evaluated twice and executions missed while the worker was late or Jenkins was
+ * down are handled according to the {@link MisfirePolicy}.
+ */
+public class CronSchedule {
+
+    private static final Logger LOGGER = Logger.getLogger(CronSchedule.class.getName());
+
+    public static final long MIN = 1000 * 60;
+
+    private PriorityQueue<Entry> queue = new PriorityQueue<>();
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<String, Long> watermarks = new HashMap<>();
+    private boolean watermarksChanged = false;
+    private MisfirePolicy misfirePolicy = MisfirePolicy.FIRE_ONCE;
+    private int sequence = 0;
+    private long skippedCount = 0;
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Drops the current schedule and indexes all the given crons again. Executions at or before the watermark of a
+     * cron are not scheduled again, but nothing that was missed is caught up.
+     *
+     * @param crons
+     *      The crons to schedule, in configuration order.
+     * @param currentTime
+     *      Time the next executions are calculated from.
+     */
+    public synchronized void reset(final Collection<LabelCron> crons, final long currentTime) {
+        rebuild(crons, currentTime, false);
+    }
+
+    /**
+     * Indexes all the given crons with the watermarks persisted by an earlier run, so executions missed since then are
+     * caught up according to the {@link MisfirePolicy}.
+     *
+     * @param crons
+     *      The crons to schedule, in configuration order.
+     * @param currentTime
+     *      Time the next executions are calculated from for crons without a watermark.
+     * @param persisted
+     *      Last evaluated execution by cron name.
+     */
+    public synchronized void restore(final Collection<LabelCron> crons, final long currentTime, final Map<String, Long> persisted) {
+        watermarks.clear();
+        if (persisted != null) {
+            watermarks.putAll(persisted);
+        }
+        rebuild(crons, currentTime, true);
+    }
+
+    private void rebuild(final Collection<LabelCron> crons, final long currentTime, final boolean catchUp) {
+        queue.clear();
+        entries.clear();
+        sequence = 0;
+        final Set<String> names = new HashSet<>();
+        for (LabelCron c : crons) {
+            names.add(c.getName());
+            addEntry(c, currentTime, catchUp);
+        }
+        watermarksChanged |= watermarks.keySet().retainAll(names);
+        fireChange();
+    }
+
+    /**
+     * Applies a reconfiguration without touching the crons that did not change: removed crons are dropped, new and
+     * changed crons are scheduled again and every other cron keeps its next execution. The configuration order, which
+     * decides between crons due at the same time, is taken from the given list.
+     *
+     * @param crons
+     *      All crons after the reconfiguration, in configuration order.
+     * @param changed
+     *      The new and changed crons.
+     * @param removed
+     *      The names of the removed crons.
+     * @param currentTime
+     *      Time the next executions of the changed crons are calculated from.
+     */
+    public synchronized void update(final List<LabelCron> crons, final Collection<LabelCron> changed, final Collection<String> removed, final long currentTime) {
+        for (String name : removed) {
+            watermarksChanged |= watermarks.remove(name) != null;
+            removeEntry(name);
+        }
+        for (LabelCron c : changed) {
+            addEntry(c, currentTime, false);
+        }
+        // renumber in configuration order and heapify again, no execution is recalculated
+        sequence = 0;
+        for (LabelCron c : crons) {
+            final Entry e = entries.get(c.getName());
+            if (e != null) e.order = sequence++;
+        }
+        queue = new PriorityQueue<>(entries.values());
+        fireChange();
+    }
+
+    /**
+     * Applies changes to single crons in O(changed crons): replaced crons keep their position in the configuration
+     * order, new crons are appended.
+     *
+     * @param changed
+     *      The new and changed crons.
+     * @param removed
+     *      The names of the removed crons.
+     * @param currentTime
+     *      Time the next executions of the changed crons are calculated from.
+     */
+    public synchronized void apply(final Collection<LabelCron> changed, final Collection<String> removed, final long currentTime) {
+        for (String name : removed) {
+            watermarksChanged |= watermarks.remove(name) != null;
+            removeEntry(name);
+        }
+        for (LabelCron c : changed) {
+            addEntry(c, currentTime, false);
+        }
+        fireChange();
+    }
+
+    /**
+     * Adds (or replaces) a cron in the schedule.
+     *
+     * @return
+     *      false if the cron could not be parsed and will never be executed.
+     */
+    public synchronized boolean add(final LabelCron c, final long currentTime) {
+        final boolean added = addEntry(c, currentTime, false);
+        fireChange();
+        return added;
+    }
+
+    public synchronized boolean remove(final String name) {
+        watermarksChanged |= watermarks.remove(name) != null;
+        if (removeEntry(name)) {
+            fireChange();
+            return true;
+        }
+        return false;
+    }
+
+    private boolean addEntry(final LabelCron c, final long currentTime, final boolean catchUp) {
+        final Entry old = entries.get(c.getName());
+        removeEntry(c.getName());
+        final Long watermark = watermarks.get(c.getName());
+        long start = currentTime;
+        if (watermark != null) {
+            start = catchUp ? watermark + MIN : Math.max(currentTime, watermark + MIN);
+        }
+        final long next = nextExecution(c, start);
+        if (next < 0) {
+            return false;
+        }
+        // a replaced cron keeps its place in the configuration order
+        final Entry e = new Entry(c, old != null ? old.order : sequence++, next);
+        entries.put(c.getName(), e);
+        queue.add(e);
+        return true;
+    }
+
+    /**
+     * Entries are only marked as cancelled and dropped when they reach the head of the queue, removing them from the
+     * heap right away would be linear. The heap is compacted if cancelled entries start to dominate.
+     */
+    private boolean removeEntry(final String name) {
+        final Entry e = entries.remove(name);
+        if (e == null) {
+            return false;
+        }
+        e.cancelled = true;
+        if (queue.size() > 2 * entries.size() + 64) {
+            queue = new PriorityQueue<>(entries.values());
+        }
+        return true;
+    }
+
+    private Entry peekLive() {
+        Entry e;
+        while ((e = queue.peek()) != null && e.cancelled) {
+            queue.poll();
+        }
+        return e;
+    }
+
+    /**
+     * Removes all executions that are due before <i>currentTime + horizon</i> and schedules the next execution of
+     * their crons. Executions more than a minute late count as missed and are handled by the {@link MisfirePolicy}.
+     *
+     * @return
+     *      The due executions ordered by execution time, then configuration order.
+     */
+    public synchronized List<CronFire> pollDue(final long currentTime, final long horizon) {
+        final List<CronFire> due = new ArrayList<>();
+        Entry e;
+        while ((e = peekLive()) != null && e.nextExecution - currentTime < horizon) {
+            queue.poll();
+            long fireTime = e.nextExecution;
+            boolean fire = true;
+            final boolean missed = currentTime - fireTime > MIN;
+            if (missed && misfirePolicy != MisfirePolicy.FIRE_ALL) {
+                // jump straight to the latest execution in the window instead of walking every missed one
+                final long last = previousExecution(e.cron, currentTime + horizon - 1);
+                if (last > fireTime) {
+                    fireTime = last;
+                }
+                fire = misfirePolicy == MisfirePolicy.FIRE_ONCE || currentTime - fireTime <= MIN;
+            }
+            if (fire) {
+                due.add(new CronFire(e.cron, fireTime, currentTime - fireTime > MIN));
+            } else {
+                LOGGER.log(Level.FINE, "Skipping missed executions of " + e.cron.getName() + " up to " + new Date(fireTime));
+                skippedCount++;
+            }
+            watermarks.put(e.cron.getName(), fireTime);
+            watermarksChanged = true;
+
+            // with FIRE_ALL this re-queues the next missed execution, which keeps the catch-up in global order
+            final long next = nextExecution(e.cron, fireTime + MIN);
+            if (next < 0) {
+                entries.remove(e.cron.getName());
+            } else {
+                e.nextExecution = next;
+                queue.add(e);
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Finds the last execution of every cron in the window <i>(from, to]</i> without touching the schedule.
+     *
+     * Every {@link org.jenkins.plugins.labelmanager.model.LabelAction} always changes the same labels and applying it
+     * twice gives the same labels as applying it once, so only the last execution of each cron in a window decides
+     * the labels at the end of the window.
+     *
+     * @return
+     *      The last execution of each cron that runs in the window, ordered by execution time, then cron order.
+     */
+    public static List<CronFire> lastExecutions(final Collection<LabelCron> crons, final long from, final long to) {
+        final List<CronFire> fires = new ArrayList<>();
+        for (LabelCron c : crons) {
+            if (c.getCron() == null || c.getCron().trim().isEmpty()) continue;
+            final long last = previousExecution(c, to);
+            if (last > from && last <= to) {
+                fires.add(new CronFire(c, last, false));
+            }
+        }
+        // stable sort keeps the cron order for executions at the same time
+        fires.sort(Comparator.comparingLong(CronFire::getScheduledTime));
+        return fires;
+    }
+
+    /**
+     * @return
+     *      The earliest scheduled execution or -1 if nothing is scheduled.
+     */
+    public synchronized long peekNextExecution() {
+        final Entry e = peekLive();
+        return e == null ? -1 : e.nextExecution;
+    }
+
+    /**
+     * @return
+     *      Number of executions {@link #pollDue(long, long)} skipped because of the {@link MisfirePolicy}.
+     */
+    public synchronized long getSkippedCount() {
+        return skippedCount;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized MisfirePolicy getMisfirePolicy() {
+        return misfirePolicy;
+    }
+
+    public synchronized void setMisfirePolicy(final MisfirePolicy misfirePolicy) {
+        this.misfirePolicy = misfirePolicy == null ? MisfirePolicy.FIRE_ONCE : misfirePolicy;
+    }
+
+    /**
+     * @return
+     *      A copy of the watermarks if they changed since the last call, otherwise null.
+     */
+    public synchronized Map<String, Long> getWatermarksIfChanged() {
+        if (!watermarksChanged) {
+            return null;
+        }
+        watermarksChanged = false;
+        return new HashMap<>(watermarks);
+    }
+
+    /**
+     * Registers a callback that is notified whenever crons are added to or removed from the schedule, so a worker
+     * sleeping until {@link #peekNextExecution()} can recalculate its wake up.
+     */
+    public void addChangeListener(final Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(final Runnable listener) {
+        changeListeners.remove(listener);
+    }
+
+    private void fireChange() {
+        for (Runnable r : changeListeners) {
+            try {
+                r.run();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Schedule change listener failed", e);
+            }
+        }
+    }
+
+    private static long truncateToMinute(final long time) {
+        return time - (time % MIN);
+    }
+
+    /**
+     * @return
+     *      The first execution at or after the given time, always on a full minute.
+     */
+    private static long nextExecution(final LabelCron c, final long time) {
+        if (c.getCron() == null || c.getCron().trim().isEmpty()) {
+            return -1;
+        }
+        try {
+            final CronTab cronTab = c.getCronTab();
+            final long minute = time % MIN == 0 ? time : truncateToMinute(time) + MIN;
+            return truncateToMinute(cronTab.ceil(minute).getTimeInMillis());
+        } catch (ANTLRException e) {
+            LOGGER.log(Level.WARNING, "Cannot parse cron for " + c.getName() + ", it will not be scheduled.");
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Cannot calculate the next execution for " + c.getName() + ", it will not be scheduled.", e);
+        }
+        return -1;
+    }
+
+    /**
+     * @return
+     *      The last execution at or before the given time, always on a full minute, or -1 if there is none.
+     */
+    private static long previousExecution(final LabelCron c, final long time) {
+        try {
+            return truncateToMinute(c.getCronTab().floor(truncateToMinute(time)).getTimeInMillis());
+        } catch (ANTLRException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+        private final LabelCron cron;
+        private int order;
+        private long nextExecution;
+        private boolean cancelled;
+
+        Entry(LabelCron cron, int order, long nextExecution) {
+            this.cron = cron;
+            this.order = order;
+            this.nextExecution = nextExecution;
+        }
+
+        @Override
+        public int compareTo(Entry o) {
+            int res = Long.compare(nextExecution, o.nextExecution);
+            return res != 0 ? res : Integer.compare(order, o.order);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.jenkins.plugins.labelmanager.schedule;
+
+/**
+ * What to do with executions of a cron that were missed, because Jenkins was down or the worker ran late.
+ */
+public enum MisfirePolicy {
+    FIRE_ONCE("Fire once"), FIRE_ALL("Fire all"), SKIP("Skip");
+
+    private final String name;
+
+    MisfirePolicy(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
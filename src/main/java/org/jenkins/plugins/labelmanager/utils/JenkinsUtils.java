@@ -2,6 +2,9 @@ package org.jenkins.plugins.labelmanager.utils;
 
 import hudson.model.*;
 import jenkins.model.Jenkins;
+import org.jenkins.plugins.labelmanager.executors.ExecutorReshaper;
+import org.jenkins.plugins.labelmanager.executors.IdleTracker;
+import org.jenkins.plugins.labelmanager.index.NodeIndex;
 import org.jenkins.plugins.labelmanager.model.type.NodeType;
 
 import java.io.File;
@@ -10,17 +13,17 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 public class JenkinsUtils {
 
     private static final Logger LOGGER = Logger.getLogger(JenkinsUtils.class.getName());
 
-    private static final int QUIETMODE_MONITORING_SLEEP = 500;
-
     /**
      * Get the Jenkins home (root) directory.
      *
@@ -41,34 +44,25 @@ public class JenkinsUtils {
     }
 
     public static List<String> getAllNodeNames() {
-        List<String> nodes = Jenkins.getActiveInstance().getNodes().stream().map(Node::getDisplayName).collect(Collectors.toCollection(LinkedList::new));
-        nodes.add(NodeType.MASTER_NODE);
-        return nodes;
+        return new LinkedList<>(NodeIndex.get().getNodeNames());
     }
 
     /**
      * Waits until all Jenkins slaves are idle.
      */
     public static void waitUntilIdle() {
-        Jenkins instance = Jenkins.getActiveInstance();
-        final Computer computers[] = instance.getComputers();
-
-        boolean running;
-        do {
-            running = false;
-            for (final Computer computer : computers) {
-                if (computer.countBusy() != 0) {
-                    running = true;
-                    break;
-                }
-            }
-
-            try {
-                Thread.sleep(QUIETMODE_MONITORING_SLEEP);
-            } catch (final InterruptedException e) {
-                LOGGER.log(Level.WARNING, e.getMessage(), e);
-            }
-        } while (running);
+        final Future<Void> idle = IdleTracker.get().whenAllIdle();
+        try {
+            idle.get();
+        } catch (final InterruptedException e) {
+            LOGGER.log(Level.WARNING, e.getMessage(), e);
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException e) {
+            LOGGER.log(Level.WARNING, e.getMessage(), e);
+        } finally {
+            // no longer waiting, drops the waiter unless it completed
+            idle.cancel(false);
+        }
     }
 
     /**
@@ -85,30 +79,28 @@ public class JenkinsUtils {
      */
     public static void waitUntilIdleAndSwitchToQuietMode(int timeout, TimeUnit unit) throws IOException {
         Jenkins instance = Jenkins.getActiveInstance();
-        final Computer computers[] = instance.getComputers();
-
-        boolean running;
-        long starttime = System.currentTimeMillis();
-        do {
-            running = false;
-            for (final Computer computer : computers) {
-                if (computer.countBusy() != 0) {
-                    running = true;
-                    break;
+        final Future<Void> idle = IdleTracker.get().whenAllIdle();
+        try {
+            if (timeout > 0) {
+                try {
+                    idle.get(timeout, unit);
+                    return;
+                } catch (final TimeoutException e) {
+                    if (!instance.isQuietingDown()) {
+                        LOGGER.fine("Force quiet mode for jenkins now and wait until all executors are idle.");
+                        instance.doQuietDown();
+                    }
                 }
             }
-
-            try {
-                TimeUnit.MILLISECONDS.sleep(QUIETMODE_MONITORING_SLEEP);
-            } catch (final InterruptedException e) {
-                LOGGER.log(Level.WARNING, e.getMessage(), e);
-            }
-
-            if (!instance.isQuietingDown() && starttime + unit.toMillis(timeout) < System.currentTimeMillis()) {
-                LOGGER.fine("Force quiet mode for jenkins now and wait until all executors are idle.");
-                instance.doQuietDown();
-            }
-        } while (running);
+            idle.get();
+        } catch (final InterruptedException e) {
+            LOGGER.log(Level.WARNING, e.getMessage(), e);
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException e) {
+            LOGGER.log(Level.WARNING, e.getMessage(), e);
+        } finally {
+            idle.cancel(false);
+        }
     }
 
     public static boolean isNodeOnline(String nodeName) {
@@ -125,46 +117,19 @@ public class JenkinsUtils {
         return false;
     }
 
-    public static synchronized void setNumExecutors(final Node node, int newNumOfExecutors) throws Exception {
+    /**
+     * Resizes a single node right away, see {@link ExecutorReshaper#resize(Node, int)}. The node's lock is held until
+     * it is saved, so a batch resizing the same node waits. Resizing several nodes is cheaper in a
+     * {@link org.jenkins.plugins.labelmanager.batch.NodeBatch}.
+     */
+    public static void setNumExecutors(final Node node, int newNumOfExecutors) throws Exception {
         final Jenkins instance = Jenkins.getActiveInstance();
-        final hudson.slaves.SlaveComputer c = (hudson.slaves.SlaveComputer) node.toComputer();
-        if (c == null || c.getExecutors() == null) return;
-        final int diff = c.getExecutors().size()-newNumOfExecutors;
-
-        //Slave s = new Slave();
-        //instance.addNode()
-
-        if (diff > 0) {
-            // we have too many executors
-            // send signal to all idle executors to potentially kill them off
-            // need the Queue maintenance lock held to prevent concurrent job assignment on the idle executors
-            Queue.withLock(() -> {
-                c.getExecutors().stream().filter(Executor::isIdle).forEach(Executor::interrupt);
-            });
-            //instance.setNumExecutors(instance.getNumExecutors() - diff);
-        } else if (diff < 0) {
-            // if the number is increased, add new ones
-            Set<Integer> availableNumbers  = new HashSet<>();
-            for (int i = 0; i < newNumOfExecutors; i++)
-                availableNumbers.add(i);
-
-            for (Executor executor : c.getExecutors())
-                availableNumbers.remove(executor.getNumber());
-
-            /* There may be busy executors with higher index, so only
-               fill up until numExecutors is reached.
-               Extra executors will call removeExecutor(...) and that
-               will create any necessary executors from #0 again. */
-            availableNumbers.stream().filter(number -> c.getExecutors().size() < newNumOfExecutors).forEach(number -> {
-                Executor e = new Executor(c, number);
-                c.getExecutors().add(e);
-            });
-            //instance.setNumExecutors(instance.getNumExecutors() + (-1 * diff));
+        final ExecutorReshaper reshaper = ExecutorReshaper.get();
+        synchronized (reshaper.lockFor(node)) {
+            if (reshaper.resize(node, newNumOfExecutors)) {
+                instance.setNodes(instance.getNodes());
+                instance.save();
+            }
         }
-        //instance.removeNode(node);
-        //instance.addNode(node);
-
-        instance.setNodes(instance.getNodes());
-        instance.save();
     }
 }
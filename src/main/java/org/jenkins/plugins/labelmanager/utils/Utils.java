@@ -9,6 +9,7 @@ import org.jenkins.plugins.labelmanager.model.LabelCron;
 import java.text.MessageFormat;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class Utils {
@@ -24,15 +25,19 @@ public class Utils {
                 return -1;
             }
 
-            LOGGER.fine(MessageFormat.format("Converting {0}: {1}", c.getName(), c.getCron()));
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine(MessageFormat.format("Converting {0}: {1}", c.getName(), c.getCron()));
+            }
 
-            CronTab cronTab = new CronTab(c.getCron());
+            CronTab cronTab = c.getCronTab();
 
             final Calendar nextExecution = cronTab.ceil(currentTime);
             final long delay = nextExecution.getTimeInMillis() - currentTime;
 
-            LOGGER.fine(MessageFormat.format("Current time: {0,date,medium} {0,time,long}. Next execution ({3}) in {2} seconds which is {1,date,medium} {1,time,long}",
-                    new Date(currentTime), nextExecution.getTime(), TimeUnit2.MILLISECONDS.toSeconds(delay), c.getName()));
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine(MessageFormat.format("Current time: {0,date,medium} {0,time,long}. Next execution ({3}) in {2} seconds which is {1,date,medium} {1,time,long}",
+                        new Date(currentTime), nextExecution.getTime(), TimeUnit2.MILLISECONDS.toSeconds(delay), c.getName()));
+            }
 
             if (delay < 0) {
                 final String msg = "Delay is a negative number, which means the next execution is in the past! This happens for Hudson/Jenkins installations with version 1.395 or below. Please upgrade to fix this.";
@@ -0,0 +1,59 @@
+package org.jenkins.plugins.labelmanager.api;
+
+import hudson.model.TaskListener;
+import hudson.util.StreamTaskListener;
+import org.jenkins.plugins.labelmanager.hudson.model.AsyncPeriodicWork;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+
+public class AsyncPeriodicWorkTest {
+
+    @Test
+    public void testOverrunQueuesSingleCatchUp() throws Exception {
+        BlockingWork work = new BlockingWork();
+        work.doRun();
+        Assert.assertTrue(work.started.await(10, TimeUnit.SECONDS));
+
+        // first overrun queues the catch-up, the others are merged into it
+        work.doRun();
+        work.doRun();
+        work.doRun();
+        Assert.assertEquals(1, work.getOverrunCount());
+        Assert.assertEquals(2, work.getCoalescedCount());
+
+        work.release.countDown();
+        Assert.assertTrue(work.finished.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(2, work.getRunCount());
+    }
+
+    private static class BlockingWork extends AsyncPeriodicWork {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final CountDownLatch finished = new CountDownLatch(2);
+
+        BlockingWork() {
+            super("Blocking Test Work");
+        }
+
+        @Override
+        public long getRecurrencePeriod() {
+            return MIN;
+        }
+
+        @Override
+        protected StreamTaskListener createListener() {
+            return new StreamTaskListener(System.out);
+        }
+
+        @Override
+        protected void execute(TaskListener listener) throws InterruptedException {
+            started.countDown();
+            release.await();
+            finished.countDown();
+        }
+    }
+}
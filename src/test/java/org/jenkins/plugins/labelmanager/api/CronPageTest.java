@@ -0,0 +1,46 @@
+package org.jenkins.plugins.labelmanager.api;
+
+import org.jenkins.plugins.labelmanager.CronPage;
+import org.jenkins.plugins.labelmanager.model.LabelAction;
+import org.jenkins.plugins.labelmanager.model.LabelCron;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+public class CronPageTest {
+
+    private static List<LabelCron> crons(int count) {
+        List<LabelCron> crons = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            crons.add(new LabelCron("cron" + i, "H * * * *", LabelAction.ADD, i % 2 == 0 ? "even" : "odd", "node" + (i % 10)));
+        }
+        return crons;
+    }
+
+    @Test
+    public void testPaging() {
+        CronPage page = new CronPage(crons(120), null, null, null, 2, 50);
+        Assert.assertEquals(120, page.getTotal());
+        Assert.assertEquals(3, page.getPageCount());
+        Assert.assertEquals(20, page.getCrons().size());
+        Assert.assertEquals("cron100", page.getCrons().get(0).getName());
+        Assert.assertTrue(page.isLast());
+        // past the end shows the last page
+        Assert.assertEquals(2, new CronPage(crons(120), null, null, null, 7, 50).getPage());
+        Assert.assertTrue(new CronPage(new ArrayList<>(), null, null, null, 0, 50).getCrons().isEmpty());
+    }
+
+    @Test
+    public void testFilter() {
+        CronPage page = new CronPage(crons(100), "CRON1", "node1", "odd", 0, 50);
+        // of cron1 and cron10..cron19 only cron1 and cron11 run on node1
+        Assert.assertEquals(2, page.getTotal());
+        for (LabelCron c : page.getCrons()) {
+            Assert.assertEquals("node1", c.getTypeString());
+        }
+        Assert.assertEquals("?page=1&size=50&name=CRON1&node=node1&label=odd", page.getPageUrl(1));
+    }
+}
@@ -0,0 +1,163 @@
+package org.jenkins.plugins.labelmanager.api;
+
+import org.jenkins.plugins.labelmanager.model.LabelAction;
+import org.jenkins.plugins.labelmanager.model.LabelCron;
+import org.jenkins.plugins.labelmanager.schedule.CronFire;
+import org.jenkins.plugins.labelmanager.schedule.CronSchedule;
+import org.jenkins.plugins.labelmanager.schedule.MisfirePolicy;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+
+public class CronScheduleTest {
+
+    private CronSchedule schedule;
+    private long staticTimeMillis = 692890282000L;
+
+    @Before
+    public void setup() {
+        schedule = new CronSchedule();
+    }
+
+    @Test
+    public void testEmptyCronIsNotScheduled() {
+        schedule.reset(Collections.singletonList(new LabelCron("cron1", "", LabelAction.REPLACE, "")), staticTimeMillis);
+        Assert.assertEquals(0, schedule.size());
+        Assert.assertEquals(-1, schedule.peekNextExecution());
+    }
+
+    @Test
+    public void testPollDueOnlyReturnsDueCrons() {
+        LabelCron labelCron1 = new LabelCron("labelCron1", "H/5 * * * *", LabelAction.REPLACE, "t");
+        LabelCron labelCron2 = new LabelCron("labelCron2", "* * * * *", LabelAction.REPLACE, "t");
+        LabelCron labelCron3 = new LabelCron("labelCron3", "* * * * *", LabelAction.REPLACE, "t");
+        schedule.reset(Arrays.asList(labelCron1, labelCron2, labelCron3), staticTimeMillis);
+        List<CronFire> due = schedule.pollDue(staticTimeMillis, CronSchedule.MIN);
+        Assert.assertEquals(Arrays.asList(labelCron2, labelCron3), crons(due));
+        Assert.assertEquals(3, schedule.size());
+    }
+
+    @Test
+    public void testPollDueReschedules() {
+        LabelCron labelCron1 = new LabelCron("labelCron1", "* * * * *", LabelAction.REPLACE, "t");
+        schedule.reset(Collections.singletonList(labelCron1), staticTimeMillis);
+        final long first = schedule.peekNextExecution();
+        Assert.assertEquals(1, schedule.pollDue(staticTimeMillis, CronSchedule.MIN).size());
+        Assert.assertTrue(schedule.pollDue(staticTimeMillis, CronSchedule.MIN).isEmpty());
+        Assert.assertEquals(first - (first % CronSchedule.MIN) + CronSchedule.MIN, schedule.peekNextExecution());
+    }
+
+    @Test
+    public void testChangeListenerNotified() {
+        final AtomicInteger changes = new AtomicInteger();
+        schedule.addChangeListener(changes::incrementAndGet);
+        LabelCron labelCron1 = new LabelCron("labelCron1", "* * * * *", LabelAction.REPLACE, "t");
+        LabelCron labelCron2 = new LabelCron("labelCron2", "H/5 * * * *", LabelAction.REPLACE, "t");
+        schedule.reset(Arrays.asList(labelCron1, labelCron2), staticTimeMillis);
+        Assert.assertEquals(1, changes.get());
+        schedule.remove("labelCron2");
+        Assert.assertEquals(2, changes.get());
+        // polling due crons is not a configuration change
+        schedule.pollDue(staticTimeMillis, CronSchedule.MIN);
+        Assert.assertEquals(2, changes.get());
+        Assert.assertEquals(0, schedule.peekNextExecution() % CronSchedule.MIN);
+    }
+
+    @Test
+    public void testRestoreCatchesUpOnce() {
+        LabelCron labelCron1 = new LabelCron("labelCron1", "* * * * *", LabelAction.REPLACE, "t");
+        final long watermark = staticTimeMillis - (staticTimeMillis % CronSchedule.MIN) - 10 * CronSchedule.MIN;
+        schedule.restore(Collections.singletonList(labelCron1), staticTimeMillis, Collections.singletonMap("labelCron1", watermark));
+        List<CronFire> due = schedule.pollDue(staticTimeMillis, CronSchedule.MIN);
+        Assert.assertEquals(1, due.size());
+        Assert.assertTrue(schedule.pollDue(staticTimeMillis, CronSchedule.MIN).isEmpty());
+        Assert.assertTrue(schedule.peekNextExecution() > staticTimeMillis);
+    }
+
+    @Test
+    public void testRestoreCatchesUpAllInOrder() {
+        LabelCron labelCron1 = new LabelCron("labelCron1", "* * * * *", LabelAction.REPLACE, "t");
+        final long watermark = staticTimeMillis - (staticTimeMillis % CronSchedule.MIN) - 10 * CronSchedule.MIN;
+        schedule.setMisfirePolicy(MisfirePolicy.FIRE_ALL);
+        schedule.restore(Collections.singletonList(labelCron1), staticTimeMillis, Collections.singletonMap("labelCron1", watermark));
+        List<CronFire> due = schedule.pollDue(staticTimeMillis, CronSchedule.MIN);
+        // 9 missed executions, the one at the current minute and the one due within the horizon
+        Assert.assertEquals(11, due.size());
+        for (int i = 1; i < due.size(); i++) {
+            Assert.assertEquals(CronSchedule.MIN, due.get(i).getScheduledTime() - due.get(i - 1).getScheduledTime());
+        }
+        Assert.assertTrue(due.get(0).isCatchUp());
+        Assert.assertFalse(due.get(due.size() - 1).isCatchUp());
+    }
+
+    @Test
+    public void testRestoreSkipsMissed() {
+        LabelCron labelCron1 = new LabelCron("labelCron1", "0 0 * * *", LabelAction.REPLACE, "t");
+        final long watermark = staticTimeMillis - 3 * 24 * 60 * CronSchedule.MIN;
+        schedule.setMisfirePolicy(MisfirePolicy.SKIP);
+        schedule.restore(Collections.singletonList(labelCron1), staticTimeMillis, Collections.singletonMap("labelCron1", watermark));
+        Assert.assertTrue(schedule.pollDue(staticTimeMillis, CronSchedule.MIN).isEmpty());
+        Assert.assertTrue(schedule.peekNextExecution() > staticTimeMillis);
+        Assert.assertNotNull(schedule.getWatermarksIfChanged());
+    }
+
+    @Test
+    public void testResetDoesNotFireTwice() {
+        LabelCron labelCron1 = new LabelCron("labelCron1", "* * * * *", LabelAction.REPLACE, "t");
+        schedule.reset(Collections.singletonList(labelCron1), staticTimeMillis);
+        Assert.assertEquals(1, schedule.pollDue(staticTimeMillis, CronSchedule.MIN).size());
+        schedule.reset(Collections.singletonList(labelCron1), staticTimeMillis);
+        Assert.assertTrue(schedule.pollDue(staticTimeMillis, CronSchedule.MIN).isEmpty());
+    }
+
+    @Test
+    public void testRemove() {
+        LabelCron labelCron1 = new LabelCron("labelCron1", "* * * * *", LabelAction.REPLACE, "t");
+        schedule.reset(Collections.singletonList(labelCron1), staticTimeMillis);
+        Assert.assertTrue(schedule.remove("labelCron1"));
+        Assert.assertTrue(schedule.pollDue(staticTimeMillis, CronSchedule.MIN).isEmpty());
+    }
+
+    @Test
+    public void testUpdateKeepsUnchangedAndReorders() {
+        LabelCron labelCron1 = new LabelCron("labelCron1", "* * * * *", LabelAction.REPLACE, "t");
+        LabelCron labelCron2 = new LabelCron("labelCron2", "* * * * *", LabelAction.REPLACE, "t");
+        LabelCron labelCron3 = new LabelCron("labelCron3", "* * * * *", LabelAction.REPLACE, "t");
+        schedule.reset(Arrays.asList(labelCron1, labelCron2, labelCron3), staticTimeMillis);
+        Assert.assertEquals(3, schedule.pollDue(staticTimeMillis, CronSchedule.MIN).size());
+
+        // labelCron2 moves to the front, labelCron3 is removed and labelCron4 is new
+        LabelCron labelCron4 = new LabelCron("labelCron4", "* * * * *", LabelAction.REPLACE, "t");
+        schedule.update(Arrays.asList(labelCron2, labelCron1, labelCron4), Collections.singletonList(labelCron4),
+                Collections.singletonList("labelCron3"), staticTimeMillis);
+        Assert.assertEquals(3, schedule.size());
+        // the unchanged crons already ran this minute and keep their next execution
+        Assert.assertEquals(Collections.singletonList(labelCron4), crons(schedule.pollDue(staticTimeMillis, CronSchedule.MIN)));
+        Assert.assertEquals(Arrays.asList(labelCron2, labelCron1, labelCron4), crons(schedule.pollDue(staticTimeMillis + CronSchedule.MIN, CronSchedule.MIN)));
+    }
+
+    @Test
+    public void testApplyKeepsPositionAndSkipsRemoved() {
+        LabelCron labelCron1 = new LabelCron("labelCron1", "* * * * *", LabelAction.REPLACE, "a");
+        LabelCron labelCron2 = new LabelCron("labelCron2", "* * * * *", LabelAction.REPLACE, "b");
+        schedule.reset(Arrays.asList(labelCron1, labelCron2), staticTimeMillis);
+
+        // the replaced cron stays first, the removed one is skipped although it is still in the heap
+        LabelCron changed1 = new LabelCron("labelCron1", "* * * * *", LabelAction.REPLACE, "c");
+        LabelCron labelCron3 = new LabelCron("labelCron3", "* * * * *", LabelAction.REPLACE, "d");
+        schedule.apply(Arrays.asList(labelCron3, changed1), Collections.singletonList("labelCron2"), staticTimeMillis);
+        Assert.assertEquals(2, schedule.size());
+        Assert.assertEquals(Arrays.asList(changed1, labelCron3), crons(schedule.pollDue(staticTimeMillis, CronSchedule.MIN)));
+    }
+
+    private static List<LabelCron> crons(List<CronFire> fires) {
+        return fires.stream().map(CronFire::getCron).collect(Collectors.toList());
+    }
+}
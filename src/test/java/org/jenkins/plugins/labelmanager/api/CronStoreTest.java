@@ -0,0 +1,105 @@
+package org.jenkins.plugins.labelmanager.api;
+
+import org.jenkins.plugins.labelmanager.model.LabelAction;
+import org.jenkins.plugins.labelmanager.model.LabelCron;
+import org.jenkins.plugins.labelmanager.persistence.CronStore;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+
+public class CronStoreTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static List<LabelCron> crons(int count) {
+        List<LabelCron> crons = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            crons.add(new LabelCron("cron" + i, "H * * * *", LabelAction.ADD, "label" + i, "node" + i + " \"node with space\""));
+        }
+        return crons;
+    }
+
+    @Test
+    public void testOnlyChangedCronsAreWritten() throws Exception {
+        File root = tmp.newFolder();
+        CronStore store = new CronStore(root);
+        Assert.assertFalse(store.exists());
+
+        List<LabelCron> crons = crons(100);
+        // every cron and the index
+        Assert.assertEquals(101, store.sync(crons));
+        Assert.assertTrue(store.exists());
+        Assert.assertEquals(0, store.sync(crons));
+
+        crons.set(42, new LabelCron("cron42", "H * * * *", LabelAction.REMOVE, "changed", "node42"));
+        Assert.assertEquals(1, store.sync(crons));
+
+        // a deleted cron and the index
+        crons.remove(7);
+        Assert.assertEquals(2, store.sync(crons));
+        Assert.assertFalse(new File(root, "crons/cron7.xml").exists());
+    }
+
+    @Test
+    public void testLoadKeepsOrder() throws Exception {
+        File root = tmp.newFolder();
+        List<LabelCron> crons = crons(50);
+        Collections.reverse(crons);
+        new CronStore(root).sync(crons);
+
+        CronStore store = new CronStore(root);
+        List<LabelCron> loaded = new ArrayList<>(store.load());
+        Assert.assertEquals(crons.stream().map(LabelCron::getName).collect(Collectors.toList()),
+                loaded.stream().map(LabelCron::getName).collect(Collectors.toList()));
+        Assert.assertEquals("node49 \"node with space\"", loaded.get(0).getTypeString());
+        Assert.assertEquals(Arrays.asList("label49"), new ArrayList<>(loaded.get(0).getLabels()));
+        // nothing changed since the load
+        Assert.assertEquals(0, store.sync(loaded));
+    }
+
+    @Test
+    public void testLoadSkipsMissingAndOrphanedFiles() throws Exception {
+        File root = tmp.newFolder();
+        new CronStore(root).sync(crons(3));
+        Assert.assertTrue(new File(root, "crons/cron1.xml").delete());
+        // written by a sync that did not reach the index
+        File orphan = new File(root, "crons/cron9.xml");
+        Files.copy(new File(root, "crons/cron0.xml").toPath(), orphan.toPath());
+
+        List<LabelCron> loaded = new ArrayList<>(new CronStore(root).load());
+        Assert.assertEquals(Arrays.asList("cron0", "cron2"), loaded.stream().map(LabelCron::getName).collect(Collectors.toList()));
+        Assert.assertFalse(orphan.exists());
+    }
+
+    @Test
+    public void testNamesDifferingInCase() throws Exception {
+        File root = tmp.newFolder();
+        List<LabelCron> crons = Arrays.asList(
+                new LabelCron("nightly", "H * * * *", LabelAction.ADD, "a", "master"),
+                new LabelCron("Nightly", "H * * * *", LabelAction.ADD, "b", "master"),
+                new LabelCron("NIGHTLY", "H * * * *", LabelAction.ADD, "c", "master"));
+        Assert.assertEquals(4, new CronStore(root).sync(crons));
+        Set<String> files = new HashSet<>();
+        for (String f : new File(root, "crons").list()) {
+            files.add(f.toLowerCase(Locale.ENGLISH));
+        }
+        Assert.assertEquals(3, files.size());
+
+        List<LabelCron> loaded = new ArrayList<>(new CronStore(root).load());
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), loaded.stream().map(LabelCron::getLabelString).collect(Collectors.toList()));
+    }
+}
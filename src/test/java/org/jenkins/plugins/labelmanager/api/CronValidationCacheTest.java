@@ -0,0 +1,57 @@
+package org.jenkins.plugins.labelmanager.api;
+
+import hudson.util.FormValidation;
+import org.jenkins.plugins.labelmanager.model.CronValidationCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Locale;
+
+
+public class CronValidationCacheTest {
+
+    @Test
+    public void testExpiresAtNextRun() {
+        CronValidationCache cache = new CronValidationCache();
+        FormValidation ok = FormValidation.ok("next run at 10");
+        cache.put("H * * * *", null, Locale.ENGLISH, ok, 10);
+        Assert.assertSame(ok, cache.get("H * * * *", null, Locale.ENGLISH, 9));
+        Assert.assertNull(cache.get("H * * * *", null, Locale.ENGLISH, 10));
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testKeyedBySeed() {
+        CronValidationCache cache = new CronValidationCache();
+        FormValidation a = FormValidation.ok("a");
+        cache.put("H * * * *", "job/a", Locale.ENGLISH, a, Long.MAX_VALUE);
+        Assert.assertNull(cache.get("H * * * *", "job/b", Locale.ENGLISH, 0));
+        Assert.assertNull(cache.get("H * * * *", null, Locale.ENGLISH, 0));
+        Assert.assertSame(a, cache.get("H * * * *", "job/a", Locale.ENGLISH, 0));
+    }
+
+    @Test
+    public void testKeyedByLocale() {
+        CronValidationCache cache = new CronValidationCache();
+        FormValidation en = FormValidation.ok("next run");
+        cache.put("H * * * *", null, Locale.ENGLISH, en, Long.MAX_VALUE);
+        Assert.assertNull(cache.get("H * * * *", null, Locale.GERMAN, 0));
+        Assert.assertSame(en, cache.get("H * * * *", null, Locale.ENGLISH, 0));
+        // no seed is not the empty seed
+        Assert.assertNull(cache.get("H * * * *", "", Locale.ENGLISH, 0));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        CronValidationCache cache = new CronValidationCache(2);
+        cache.put("1 * * * *", null, Locale.ENGLISH, FormValidation.ok(), Long.MAX_VALUE);
+        cache.put("2 * * * *", null, Locale.ENGLISH, FormValidation.ok(), Long.MAX_VALUE);
+        cache.get("1 * * * *", null, Locale.ENGLISH, 0);
+        cache.put("3 * * * *", null, Locale.ENGLISH, FormValidation.ok(), Long.MAX_VALUE);
+        Assert.assertEquals(2, cache.size());
+        Assert.assertNotNull(cache.get("1 * * * *", null, Locale.ENGLISH, 0));
+        Assert.assertNull(cache.get("2 * * * *", null, Locale.ENGLISH, 0));
+    }
+}
@@ -0,0 +1,96 @@
+package org.jenkins.plugins.labelmanager.api;
+
+import org.jenkins.plugins.labelmanager.history.ExecutionHistory;
+import org.jenkins.plugins.labelmanager.history.ExecutionRecord;
+import org.jenkins.plugins.labelmanager.history.HistoryLog;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+
+
+public class ExecutionHistoryTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static void record(ExecutionHistory history, int count) {
+        for (int i = 0; i < count; i++) {
+            history.record(i % 2 == 0 ? "a" : "b", "node" + (i % 3), "x", "x y", 0, i, i, ExecutionRecord.Outcome.APPLIED);
+        }
+    }
+
+    @Test
+    public void testQuerySpansRingAndLog() throws Exception {
+        File dir = tmp.newFolder();
+        ExecutionHistory history = new ExecutionHistory(new HistoryLog(dir, 200, 100), 4);
+        record(history, 20);
+
+        // the ring only holds the last 4 records, the older ones are read from the log
+        List<ExecutionRecord> records = history.query("a", null, 100);
+        Assert.assertEquals(10, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            Assert.assertEquals(18 - 2 * i, records.get(i).getSequence());
+            Assert.assertEquals("a", records.get(i).getCron());
+            Assert.assertEquals("x y", records.get(i).getNewLabels());
+        }
+        Assert.assertEquals(3, history.query("b", "node0", 3).size());
+        Assert.assertTrue(history.query("missing", null, 10).isEmpty());
+
+        // sequences continue after a restart
+        history.close();
+        history = new ExecutionHistory(new HistoryLog(dir, 200, 100), 4);
+        record(history, 1);
+        Assert.assertEquals(20, history.query(null, null, 1).get(0).getSequence());
+        Assert.assertEquals(21, history.query(null, null, 100).size());
+    }
+
+    @Test
+    public void testOldSegmentsAreDeleted() throws Exception {
+        File dir = tmp.newFolder();
+        ExecutionHistory history = new ExecutionHistory(new HistoryLog(dir, 200, 2), 4);
+        record(history, 100);
+        history.flush();
+        Assert.assertEquals(2, dir.listFiles().length);
+
+        // the newest records are still there, the oldest are gone
+        List<ExecutionRecord> records = history.query(null, null, 1000);
+        Assert.assertEquals(99, records.get(0).getSequence());
+        Assert.assertTrue(records.size() < 100);
+    }
+
+    @Test
+    public void testStringsDropOutWithTheRing() throws Exception {
+        ExecutionHistory history = new ExecutionHistory(new HistoryLog(tmp.newFolder(), 64 * 1024, 4), 4);
+        for (int i = 0; i < 1000; i++) {
+            history.record("a", "node", "build-" + i, "build-" + (i + 1), 0, i, i, ExecutionRecord.Outcome.APPLIED);
+        }
+        // cron, node and the labels of the last 4 records
+        Assert.assertTrue(history.getStringCount() <= 2 + 5);
+        Assert.assertEquals("build-1000", history.query(null, null, 1).get(0).getNewLabels());
+        Assert.assertEquals("build-11", history.query(null, null, 990).get(989).getNewLabels());
+    }
+
+    @Test
+    public void testLongLabelStrings() throws Exception {
+        File dir = tmp.newFolder();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; sb.length() < 100000; i++) {
+            sb.append("label").append(i).append(' ');
+        }
+        String labels = sb.toString().trim();
+        ExecutionHistory history = new ExecutionHistory(new HistoryLog(dir, 1024 * 1024, 4), 1);
+        history.record("a", "node", "", labels, 0, 0, 0, ExecutionRecord.Outcome.APPLIED);
+        history.record("a", "node", labels, "", 0, 1, 1, ExecutionRecord.Outcome.APPLIED);
+        history.close();
+
+        history = new ExecutionHistory(new HistoryLog(dir, 1024 * 1024, 4), 1);
+        List<ExecutionRecord> records = history.query(null, null, 10);
+        Assert.assertEquals(2, records.size());
+        Assert.assertEquals(labels, records.get(0).getOldLabels());
+        Assert.assertEquals(labels, records.get(1).getNewLabels());
+    }
+}
@@ -0,0 +1,29 @@
+package org.jenkins.plugins.labelmanager.api;
+
+import org.jenkins.plugins.labelmanager.metrics.Histogram;
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class HistogramTest {
+
+    @Test
+    public void testPercentilesFromBuckets() {
+        Histogram h = new Histogram("ms");
+        Assert.assertEquals(0, h.getP99());
+        for (int i = 0; i < 99; i++) {
+            h.record(3);
+        }
+        h.record(1000);
+        h.record(-5);
+
+        Assert.assertEquals(101, h.getCount());
+        Assert.assertEquals(1000, h.getMax());
+        Assert.assertEquals(1297, h.getSum());
+        // 3 is counted in the bucket [2, 4)
+        Assert.assertEquals(3, h.getP50());
+        Assert.assertEquals(3, h.getP90());
+        Assert.assertEquals(1000, h.getPercentile(1.0));
+        Assert.assertEquals(1, h.getBuckets()[0]);
+    }
+}
@@ -0,0 +1,45 @@
+package org.jenkins.plugins.labelmanager.api;
+
+import org.jenkins.plugins.labelmanager.labels.LabelOp;
+import org.jenkins.plugins.labelmanager.labels.LabelSet;
+import org.jenkins.plugins.labelmanager.model.LabelAction;
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class LabelOpTest {
+
+    @Test
+    public void testFusedEqualsSequential() {
+        LabelOp[] ops = {
+                LabelOp.of(LabelAction.ADD, LabelSet.parse("a b")),
+                LabelOp.of(LabelAction.REMOVE, LabelSet.parse("b x")),
+                LabelOp.of(LabelAction.ADD, LabelSet.parse("c b")),
+                LabelOp.of(LabelAction.REPLACE, LabelSet.parse("z")),
+                LabelOp.of(LabelAction.ADD, LabelSet.parse("x")),
+                LabelOp.of(LabelAction.REMOVE, LabelSet.parse("z")),
+        };
+        LabelSet start = LabelSet.parse("x y b");
+        for (int from = 0; from < ops.length; from++) {
+            for (int to = from; to <= ops.length; to++) {
+                LabelOp fused = LabelOp.IDENTITY;
+                LabelSet sequential = start;
+                for (int i = from; i < to; i++) {
+                    fused = fused.then(ops[i]);
+                    sequential = ops[i].apply(sequential);
+                }
+                // same labels in the same order
+                Assert.assertEquals(sequential.toLabelString(), fused.apply(start).toLabelString());
+            }
+        }
+    }
+
+    @Test
+    public void testReplaceDropsEarlierChanges() {
+        LabelOp op = LabelOp.of(LabelAction.ADD, LabelSet.parse("a"))
+                .then(LabelOp.of(LabelAction.REPLACE, LabelSet.parse("b")))
+                .then(LabelOp.of(LabelAction.ADD, LabelSet.parse("c")));
+        Assert.assertTrue(op.isClear());
+        Assert.assertEquals("b c", op.apply(LabelSet.parse("x a")).toLabelString());
+    }
+}
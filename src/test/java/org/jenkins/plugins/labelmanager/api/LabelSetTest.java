@@ -0,0 +1,88 @@
+package org.jenkins.plugins.labelmanager.api;
+
+import org.jenkins.plugins.labelmanager.LabelManagerPeriodicWork;
+import org.jenkins.plugins.labelmanager.labels.LabelSet;
+import org.jenkins.plugins.labelmanager.labels.LabelTable;
+import org.jenkins.plugins.labelmanager.model.LabelAction;
+import org.jenkins.plugins.labelmanager.model.LabelCron;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class LabelSetTest {
+
+    private LabelManagerPeriodicWork periodicWork;
+
+    @Before
+    public void setup() {
+        periodicWork = new LabelManagerPeriodicWork();
+    }
+
+    @Test
+    public void testParseDropsEmptyAndDuplicates() {
+        LabelSet set = LabelSet.parse(" first  second first ");
+        Assert.assertEquals(2, set.size());
+        Assert.assertEquals("first second", set.toLabelString());
+        Assert.assertTrue(LabelSet.parse("").isEmpty());
+    }
+
+    @Test
+    public void testFullTableIsReplaced() {
+        LabelTable.reset(4);
+        try {
+            LabelSet first = LabelSet.parse("a b c");
+            LabelTable table = LabelTable.get();
+            LabelSet second = LabelSet.parse("d e");
+            Assert.assertNotSame(table, LabelTable.get());
+            Assert.assertFalse(first.isCurrent());
+            Assert.assertTrue(second.isCurrent());
+
+            // sets of both tables still work together
+            Assert.assertEquals("a b c d e", first.union(second).toLabelString());
+            Assert.assertEquals("b c", first.minus(LabelSet.parse("a d")).toLabelString());
+            Assert.assertEquals(first, LabelSet.parse("c b a"));
+            Assert.assertEquals(first.hashCode(), LabelSet.parse("c b a").hashCode());
+            Assert.assertTrue(first.union(second).containsAll(LabelSet.parse("e a")));
+
+            // a set larger than a table gets a table of its own
+            Assert.assertEquals(6, LabelSet.parse("1 2 3 4 5 6").size());
+        } finally {
+            LabelTable.reset(LabelTable.MAX_LABELS);
+        }
+    }
+
+    @Test
+    public void testEqualsIgnoresOrder() {
+        Assert.assertEquals(LabelSet.parse("a b c"), LabelSet.parse("c a b"));
+        Assert.assertNotEquals(LabelSet.parse("a b"), LabelSet.parse("a b c"));
+    }
+
+    @Test
+    public void testAddKeepsOrder() {
+        LabelCron c = new LabelCron("cron1", "* * * * *", LabelAction.ADD, "new second");
+        Assert.assertEquals("first second new", periodicWork.getResultingStringFromCron(c, "first second"));
+        Assert.assertEquals("new second", periodicWork.getResultingStringFromCron(c, ""));
+    }
+
+    @Test
+    public void testRemove() {
+        LabelCron c = new LabelCron("cron1", "* * * * *", LabelAction.REMOVE, "second missing");
+        Assert.assertEquals("first third", periodicWork.getResultingStringFromCron(c, "first second third"));
+        Assert.assertEquals("", periodicWork.getResultingStringFromCron(c, "second"));
+    }
+
+    @Test
+    public void testReplace() {
+        LabelCron c = new LabelCron("cron1", "* * * * *", LabelAction.REPLACE, "b a");
+        Assert.assertEquals("b a", periodicWork.getResultingStringFromCron(c, "first second"));
+    }
+
+    @Test
+    public void testCronsCompose() {
+        LabelCron add = new LabelCron("cron1", "* * * * *", LabelAction.ADD, "x y");
+        LabelCron remove = new LabelCron("cron2", "* * * * *", LabelAction.REMOVE, "a x");
+        LabelSet res = remove.apply(add.apply(LabelSet.parse("a b")));
+        Assert.assertEquals("b y", res.toLabelString());
+    }
+}
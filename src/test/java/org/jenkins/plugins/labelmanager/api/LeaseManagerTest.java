@@ -0,0 +1,146 @@
+package org.jenkins.plugins.labelmanager.api;
+
+import org.jenkins.plugins.labelmanager.lease.LeaseManager;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+public class LeaseManagerTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testStandbyTakesOverExpiredLease() throws Exception {
+        File dir = tmp.newFolder();
+        LeaseManager a = new LeaseManager(dir, "a", 300);
+        LeaseManager b = new LeaseManager(dir, "b", 300);
+
+        Assert.assertEquals(1, a.tryAcquire());
+        Assert.assertTrue(a.isLeader());
+        Assert.assertEquals(-1, b.tryAcquire());
+        Assert.assertEquals("a", b.getLeaderOwner());
+        // renewed in time
+        Thread.sleep(100);
+        Assert.assertEquals(1, a.tryAcquire());
+        Thread.sleep(250);
+        Assert.assertEquals(-1, b.tryAcquire());
+
+        // a stops renewing, b saw its last heartbeat before the sleep
+        Thread.sleep(400);
+        Assert.assertFalse(a.isLeader());
+        Assert.assertEquals(2, b.tryAcquire());
+        Assert.assertTrue(b.holds(2));
+        // the old leader is fenced off
+        Assert.assertFalse(a.holds(1));
+        Assert.assertEquals(-1, a.tryAcquire());
+    }
+
+    @Test
+    public void testNoTakeOverDuringFencedWrite() throws Exception {
+        File dir = tmp.newFolder();
+        LeaseManager a = new LeaseManager(dir, "a", 300);
+        LeaseManager b = new LeaseManager(dir, "b", 300);
+        Assert.assertEquals(1, a.tryAcquire());
+        Assert.assertEquals(-1, b.tryAcquire());
+
+        AtomicLong taken = new AtomicLong();
+        Thread standby = new Thread(() -> {
+            try {
+                taken.set(b.tryAcquire());
+            } catch (IOException ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+        // the write takes longer than the lease, the standby waits for the lock
+        String written = a.whileHolding(1, () -> {
+            standby.start();
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException ex) {
+                throw new RuntimeException(ex);
+            }
+            return "written";
+        });
+        standby.join();
+        Assert.assertEquals("written", written);
+        Assert.assertEquals(-1, taken.get());
+
+        // once b took over, a does not write anymore
+        a.stop();
+        Assert.assertEquals(2, b.tryAcquire());
+        Assert.assertNull(a.whileHolding(1, () -> {
+            throw new AssertionError("fenced write ran");
+        }));
+    }
+
+    @Test
+    public void testReleasedLeaseIsTakenOverRightAway() throws Exception {
+        File dir = tmp.newFolder();
+        LeaseManager a = new LeaseManager(dir, "a", TimeUnit.MINUTES.toMillis(1));
+        LeaseManager b = new LeaseManager(dir, "b", TimeUnit.MINUTES.toMillis(1));
+        Assert.assertEquals(1, a.tryAcquire());
+        Assert.assertEquals(-1, b.tryAcquire());
+        a.stop();
+        Assert.assertEquals(2, b.tryAcquire());
+        Assert.assertNull(a.getLeaderOwner());
+    }
+
+    @Test
+    public void testTakeOverFromKilledJvm() throws Exception {
+        File dir = tmp.newFolder();
+        String java = new File(System.getProperty("java.home"), "bin/java").getPath();
+        Process other = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                OtherController.class.getName(), dir.getPath()).redirectErrorStream(true).start();
+        try {
+            BufferedReader out = new BufferedReader(new InputStreamReader(other.getInputStream(), StandardCharsets.UTF_8));
+            String line;
+            while ((line = out.readLine()) != null && !line.equals("leader")) {
+                // wait until the other JVM holds the lease
+            }
+            Assert.assertEquals("leader", line);
+
+            LeaseManager standby = new LeaseManager(dir, "standby", 1000);
+            Assert.assertEquals(-1, standby.tryAcquire());
+            Thread.sleep(1500);
+            // still renewed by the other JVM
+            Assert.assertEquals(-1, standby.tryAcquire());
+
+            other.destroyForcibly().waitFor(10, TimeUnit.SECONDS);
+            long token = -1;
+            for (int i = 0; i < 50 && token < 0; i++) {
+                Thread.sleep(100);
+                token = standby.tryAcquire();
+            }
+            Assert.assertEquals(2, token);
+        } finally {
+            other.destroyForcibly();
+        }
+    }
+
+    /**
+     * Holds the lease in a second JVM until it is killed.
+     */
+    public static class OtherController {
+        public static void main(String[] args) throws Exception {
+            LeaseManager lease = new LeaseManager(new File(args[0]), "other", 1000);
+            lease.start();
+            while (!lease.isLeader()) {
+                Thread.sleep(10);
+            }
+            System.out.println("leader");
+            System.out.flush();
+            Thread.sleep(TimeUnit.MINUTES.toMillis(5));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.jenkins.plugins.labelmanager.ui;
+
+import com.gargoylesoftware.htmlunit.HttpMethod;
+import com.gargoylesoftware.htmlunit.Page;
+import com.gargoylesoftware.htmlunit.WebRequest;
+import org.jenkins.plugins.labelmanager.CronChanges;
+import org.jenkins.plugins.labelmanager.LabelManagerPluginImpl;
+import org.jenkins.plugins.labelmanager.LabelManagerTestBase;
+import org.jenkins.plugins.labelmanager.model.LabelAction;
+import org.jenkins.plugins.labelmanager.model.LabelCron;
+import org.junit.Assert;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+
+
+public class CronApiTest extends LabelManagerTestBase {
+
+    public CronApiTest() {
+        super();
+        j = new JenkinsRule();
+    }
+
+    @Test
+    public void testVersionedChanges() throws Exception {
+        LabelManagerPluginImpl plugin = LabelManagerPluginImpl.get();
+        LabelCron labelCron1 = new LabelCron("labelCron1", "H 3 * * *", LabelAction.ADD, "a", "master");
+        LabelCron labelCron2 = new LabelCron("labelCron2", "H 4 * * *", LabelAction.ADD, "b", "master");
+        CronChanges result = plugin.applyCronChanges(Arrays.asList(labelCron1, labelCron2), Collections.emptyMap());
+        Assert.assertEquals(Arrays.asList("labelCron1", "labelCron2"), result.getCreated());
+        Assert.assertEquals(1, plugin.getCron("labelCron1").getVersion());
+
+        // based on version 1, the update keeps the position
+        LabelCron changed1 = new LabelCron("labelCron1", "H 5 * * *", LabelAction.ADD, "a", "master");
+        changed1.setVersion(1);
+        Assert.assertEquals(Collections.singletonList("labelCron1"), plugin.applyCronChanges(Collections.singletonList(changed1), Collections.emptyMap()).getUpdated());
+        Assert.assertEquals(2, plugin.getCron("labelCron1").getVersion());
+        Assert.assertEquals(Arrays.asList(changed1, labelCron2), plugin.getCrons());
+
+        // a stale version or an invalid cron changes nothing, not even the valid part
+        LabelCron stale = new LabelCron("labelCron1", "H 6 * * *", LabelAction.ADD, "a", "master");
+        stale.setVersion(1);
+        result = plugin.applyCronChanges(Collections.singletonList(stale), Collections.singletonMap("labelCron2", 0L));
+        Assert.assertFalse(result.isApplied());
+        Assert.assertTrue(result.getConflicts().containsKey("labelCron1"));
+        result = plugin.applyCronChanges(Collections.singletonList(new LabelCron("labelCron3", "nope", LabelAction.ADD, "c", "master")),
+                Collections.singletonMap("labelCron2", 1L));
+        Assert.assertTrue(result.getInvalid().containsKey("labelCron3"));
+        Assert.assertEquals(Arrays.asList(changed1, labelCron2), plugin.getCrons());
+
+        Assert.assertEquals(Collections.singletonList("labelCron2"), plugin.applyCronChanges(Collections.emptyList(), Collections.singletonMap("labelCron2", 1L)).getDeleted());
+        Assert.assertEquals(1, plugin.getSchedule().size());
+    }
+
+    @Test
+    public void testRestApi() throws Exception {
+        JenkinsRule.WebClient wc = j.createWebClient();
+        wc.setThrowExceptionOnFailingStatusCode(false);
+
+        String cron = "{\"name\":\"labelCron1\",\"cron\":\"H 3 * * *\",\"labelAction\":\"ADD\",\"labelString\":\"a\",\"typeString\":\"master\"}";
+        Assert.assertEquals(201, post(wc, "label-manager/crons/create", cron).getWebResponse().getStatusCode());
+        Assert.assertEquals(409, post(wc, "label-manager/crons/create", cron).getWebResponse().getStatusCode());
+
+        String json = wc.goTo("label-manager/crons/cron/labelCron1/", "application/json").getWebResponse().getContentAsString();
+        Assert.assertTrue(json, json.contains("\"version\":1"));
+
+        // the second import is based on the old version
+        String update = "[{\"name\":\"labelCron1\",\"cron\":\"H 4 * * *\",\"labelAction\":\"ADD\",\"labelString\":\"a\",\"typeString\":\"master\",\"version\":1}]";
+        Assert.assertEquals(200, post(wc, "label-manager/crons/import", update).getWebResponse().getStatusCode());
+        Assert.assertEquals(409, post(wc, "label-manager/crons/import", update).getWebResponse().getStatusCode());
+        Assert.assertEquals("H 4 * * *", LabelManagerPluginImpl.get().getCron("labelCron1").getCron());
+
+        // changes only through crumb checked POSTs
+        WebRequest put = new WebRequest(new URL(j.getURL(), "label-manager/crons/cron/labelCron1/"), HttpMethod.PUT);
+        put.setRequestBody(update);
+        Assert.assertEquals(405, wc.getPage(put).getWebResponse().getStatusCode());
+        WebRequest delete = new WebRequest(new URL(j.getURL(), "label-manager/crons/cron/labelCron1/"), HttpMethod.DELETE);
+        Assert.assertEquals(405, wc.getPage(delete).getWebResponse().getStatusCode());
+        Assert.assertNotNull(LabelManagerPluginImpl.get().getCron("labelCron1"));
+
+        String single = "{\"cron\":\"H 5 * * *\",\"labelAction\":\"ADD\",\"labelString\":\"a\",\"typeString\":\"master\",\"version\":2}";
+        Assert.assertEquals(200, post(wc, "label-manager/crons/cron/labelCron1/update", single).getWebResponse().getStatusCode());
+        Assert.assertEquals("H 5 * * *", LabelManagerPluginImpl.get().getCron("labelCron1").getCron());
+        Assert.assertEquals(200, post(wc, "label-manager/crons/cron/labelCron1/doDelete", "").getWebResponse().getStatusCode());
+        Assert.assertNull(LabelManagerPluginImpl.get().getCron("labelCron1"));
+    }
+
+    private Page post(JenkinsRule.WebClient wc, String url, String body) throws Exception {
+        WebRequest req = new WebRequest(wc.createCrumbedUrl(url), HttpMethod.POST);
+        req.setAdditionalHeader("Content-Type", "application/json");
+        req.setRequestBody(body);
+        return wc.getPage(req);
+    }
+}
@@ -0,0 +1,44 @@
+package org.jenkins.plugins.labelmanager.ui;
+
+import com.gargoylesoftware.htmlunit.HttpMethod;
+import com.gargoylesoftware.htmlunit.WebRequest;
+import hudson.security.csrf.DefaultCrumbIssuer;
+import org.jenkins.plugins.labelmanager.LabelManagerPluginImpl;
+import org.jenkins.plugins.labelmanager.LabelManagerTestBase;
+import org.jenkins.plugins.labelmanager.model.LabelAction;
+import org.jenkins.plugins.labelmanager.model.LabelCron;
+import org.junit.Assert;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.net.URL;
+import java.util.Collections;
+
+
+public class CronEditorTest extends LabelManagerTestBase {
+
+    public CronEditorTest() {
+        super();
+        j = new JenkinsRule();
+    }
+
+    @Test
+    public void testDeleteWithCrumbIssuer() throws Exception {
+        j.jenkins.setCrumbIssuer(new DefaultCrumbIssuer(false));
+        LabelManagerPluginImpl plugin = LabelManagerPluginImpl.get();
+        plugin.applyCronChanges(Collections.singletonList(new LabelCron("labelCron1", "H 3 * * *", LabelAction.ADD, "a", "master")),
+                Collections.emptyMap());
+
+        JenkinsRule.WebClient wc = j.createWebClient();
+        wc.setThrowExceptionOnFailingStatusCode(false);
+
+        // a post without crumb is rejected
+        WebRequest req = new WebRequest(new URL(j.getURL(), "label-manager/cron/labelCron1/delete"), HttpMethod.POST);
+        Assert.assertEquals(403, wc.getPage(req).getWebResponse().getStatusCode());
+        Assert.assertNotNull(plugin.getCron("labelCron1"));
+
+        // the delete button sends one
+        j.submit(wc.goTo("label-manager/cron/labelCron1/").getFormByName("delete"));
+        Assert.assertNull(plugin.getCron("labelCron1"));
+    }
+}
@@ -0,0 +1,62 @@
+package org.jenkins.plugins.labelmanager.ui;
+
+import hudson.model.Node;
+import org.jenkins.plugins.labelmanager.LabelManagerTestBase;
+import org.jenkins.plugins.labelmanager.batch.NodeBatch;
+import org.jenkins.plugins.labelmanager.executors.ExecutorReshaper;
+import org.jenkins.plugins.labelmanager.model.type.NodeType;
+import org.junit.Assert;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+
+public class ExecutorReshaperTest extends LabelManagerTestBase {
+
+    public ExecutorReshaperTest() {
+        super();
+        j = new JenkinsRule();
+    }
+
+    @Test
+    public void testRequestsAreCommittedTogether() throws Exception {
+        Node n1 = createOnlineNode("test1");
+        Node n2 = createOnlineNode("test2");
+        ExecutorReshaper reshaper = ExecutorReshaper.get();
+        reshaper.request(n1.getNodeName(), 3);
+        reshaper.request(n2.getNodeName(), 2);
+        reshaper.request(NodeType.MASTER_NODE, 4);
+        Assert.assertEquals(3, reshaper.getPending().size());
+
+        NodeBatch batch = new NodeBatch();
+        reshaper.stage(batch);
+        Assert.assertTrue(reshaper.getPending().isEmpty());
+        Assert.assertEquals(3, batch.getChanges().size());
+        batch.commit();
+
+        Assert.assertEquals(3, j.jenkins.getNode(n1.getNodeName()).getNumExecutors());
+        Assert.assertEquals(3, j.jenkins.getNode(n1.getNodeName()).toComputer().getExecutors().size());
+        Assert.assertEquals(2, j.jenkins.getNode(n2.getNodeName()).toComputer().getNumExecutors());
+        Assert.assertEquals(4, j.jenkins.getNumExecutors());
+        Assert.assertEquals(4, j.jenkins.toComputer().getExecutors().size());
+    }
+
+    @Test
+    public void testIdleSurplusExecutorsAreRemoved() throws Exception {
+        Node n1 = createOnlineNode("test1");
+        ExecutorReshaper.get().request(n1.getNodeName(), 3);
+        NodeBatch batch = new NodeBatch();
+        ExecutorReshaper.get().stage(batch);
+        batch.commit();
+
+        ExecutorReshaper.get().request(n1.getNodeName(), 1);
+        batch = new NodeBatch();
+        ExecutorReshaper.get().stage(batch);
+        batch.commit();
+        Assert.assertEquals(1, j.jenkins.getNode(n1.getNodeName()).getNumExecutors());
+        // idle executors stop asynchronously once interrupted
+        for (int i = 0; i < 50 && !ExecutorReshaper.get().getDraining().isEmpty(); i++) {
+            Thread.sleep(100);
+        }
+        Assert.assertEquals(1, j.jenkins.getNode(n1.getNodeName()).toComputer().getExecutors().size());
+    }
+}
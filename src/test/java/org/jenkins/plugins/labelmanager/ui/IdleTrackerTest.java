@@ -0,0 +1,70 @@
+package org.jenkins.plugins.labelmanager.ui;
+
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Node;
+import hudson.util.OneShotEvent;
+import org.jenkins.plugins.labelmanager.LabelManagerTestBase;
+import org.jenkins.plugins.labelmanager.executors.IdleTracker;
+import org.junit.Assert;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestBuilder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+
+public class IdleTrackerTest extends LabelManagerTestBase {
+
+    public IdleTrackerTest() {
+        super();
+        j = new JenkinsRule();
+    }
+
+    @Test
+    public void testFutureCompletesWhenLastBuildFinishes() throws Exception {
+        Node node = createOnlineNode("test1", "fast");
+        final OneShotEvent started = new OneShotEvent();
+        final OneShotEvent release = new OneShotEvent();
+        FreeStyleProject p = j.createFreeStyleProject();
+        p.setAssignedLabel(j.jenkins.getLabel("fast"));
+        p.getBuildersList().add(new TestBuilder() {
+            @Override
+            public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener) throws InterruptedException {
+                started.signal();
+                release.block();
+                return true;
+            }
+        });
+
+        IdleTracker tracker = IdleTracker.get();
+        Assert.assertTrue(tracker.whenLabelIdle("fast").isDone());
+        Future<FreeStyleBuild> build = p.scheduleBuild2(0);
+        started.block(10000);
+
+        Assert.assertEquals(1, tracker.getBusy(node.getNodeName()));
+        Assert.assertEquals(1, tracker.getBusyForLabel("fast"));
+        CompletableFuture<Void> nodeIdle = tracker.whenNodeIdle(node.getNodeName());
+        CompletableFuture<Void> labelIdle = tracker.whenLabelIdle("fast");
+        Assert.assertFalse(nodeIdle.isDone());
+        Assert.assertFalse(labelIdle.isDone());
+        Assert.assertTrue(tracker.whenLabelIdle("slow").isDone());
+
+        // a caller giving up does not leave its waiter behind
+        tracker.whenAllIdle().cancel(false);
+        Assert.assertEquals(2, tracker.getWaiterCount());
+
+        release.signal();
+        j.assertBuildStatusSuccess(build);
+        nodeIdle.get(10, TimeUnit.SECONDS);
+        labelIdle.get(10, TimeUnit.SECONDS);
+        tracker.whenAllIdle().get(10, TimeUnit.SECONDS);
+        Assert.assertEquals(0, tracker.getBusy(node.getNodeName()));
+        Assert.assertEquals(0, tracker.getWaiterCount());
+    }
+}
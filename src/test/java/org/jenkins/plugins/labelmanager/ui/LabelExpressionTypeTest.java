@@ -0,0 +1,58 @@
+package org.jenkins.plugins.labelmanager.ui;
+
+import hudson.model.Node;
+import org.jenkins.plugins.labelmanager.LabelManagerPeriodicWork;
+import org.jenkins.plugins.labelmanager.LabelManagerTestBase;
+import org.jenkins.plugins.labelmanager.model.LabelAction;
+import org.jenkins.plugins.labelmanager.model.LabelCron;
+import org.jenkins.plugins.labelmanager.model.type.LabelExpressionType;
+import org.jenkins.plugins.labelmanager.model.type.TypeInterface;
+import org.junit.Assert;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+
+public class LabelExpressionTypeTest extends LabelManagerTestBase {
+
+    public LabelExpressionTypeTest() {
+        super();
+        j = new JenkinsRule();
+    }
+
+    @Test
+    public void testResolveExpression() throws Exception {
+        Node n1 = createOnlineNode("test1", "linux docker");
+        Node n2 = createOnlineNode("test2", "linux docker gpu");
+        Node n3 = createOnlineNode("test3", "windows docker");
+
+        LabelExpressionType type = new LabelExpressionType("\"label:linux && docker && !gpu\"");
+        Assert.assertEquals("linux && docker && !gpu", type.getExpression());
+        Assert.assertEquals(Collections.singletonList(n1), type.get());
+        Assert.assertEquals(new HashSet<>(Arrays.asList(n1, n3)), new HashSet<>(new LabelExpressionType("label:docker&&!gpu").get()));
+        Assert.assertTrue(new LabelExpressionType("label:missing").get().isEmpty());
+    }
+
+    @Test
+    public void testCronFollowsRelabeledNodes() throws Exception {
+        Node n1 = createOnlineNode("test1", "pool");
+        Node n2 = createOnlineNode("test2", "other");
+
+        LabelCron labelCron = new LabelCron("labelCron", "* * * * *", LabelAction.ADD, "tagged", "label:pool");
+        TypeInterface type = labelCron.getTypes().iterator().next();
+        Assert.assertTrue(type instanceof LabelExpressionType);
+
+        LabelManagerPeriodicWork periodicWork = new LabelManagerPeriodicWork();
+        periodicWork.runCronTask(labelCron);
+        assertLabelsMatch("pool tagged", n1.getLabelString());
+        assertLabelsMatch("other", n2.getLabelString());
+
+        n2.setLabelString("other pool");
+        j.jenkins.setNodes(j.jenkins.getNodes());
+        periodicWork.runCronTask(labelCron);
+        assertLabelsMatch("other pool tagged", n2.getLabelString());
+    }
+}
@@ -0,0 +1,51 @@
+package org.jenkins.plugins.labelmanager.ui;
+
+import hudson.model.Node;
+import org.jenkins.plugins.labelmanager.LabelManagerPeriodicWork;
+import org.jenkins.plugins.labelmanager.LabelManagerTestBase;
+import org.jenkins.plugins.labelmanager.index.LabelIndex;
+import org.jenkins.plugins.labelmanager.model.LabelAction;
+import org.jenkins.plugins.labelmanager.model.LabelCron;
+import org.jenkins.plugins.labelmanager.model.type.NodeType;
+import org.junit.Assert;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+
+public class LabelIndexTest extends LabelManagerTestBase {
+
+    public LabelIndexTest() {
+        super();
+        j = new JenkinsRule();
+    }
+
+    @Test
+    public void testIndexFollowsBatchAndNodeChanges() throws Exception {
+        Node n1 = createOnlineNode("test1", "linux");
+        Node n2 = createOnlineNode("test2", "linux docker");
+        LabelIndex index = LabelIndex.get();
+
+        Assert.assertEquals(new HashSet<>(Arrays.asList(n1.getNodeName(), n2.getNodeName())), new HashSet<>(index.getNodeNames("linux")));
+        Assert.assertTrue(index.getLabels(n2.getNodeName()).containsAll(Arrays.asList("linux", "docker", n2.getNodeName())));
+
+        new LabelManagerPeriodicWork().runCronTask(new LabelCron("labelCron", "* * * * *", LabelAction.REPLACE, "windows", new NodeType(n1)));
+        Assert.assertEquals(Collections.singletonList(n2.getNodeName()), index.getNodeNames("linux"));
+        Assert.assertEquals(Collections.singletonList(n1.getNodeName()), index.getNodeNames("windows"));
+
+        j.jenkins.removeNode(n2);
+        Assert.assertTrue(index.getNodeNames("linux").isEmpty());
+        Assert.assertNull(index.getLabels(n2.getNodeName()));
+    }
+
+    @Test
+    public void testRestApi() throws Exception {
+        Node n1 = createOnlineNode("test1", "linux");
+        String json = j.createWebClient().goTo("label-manager/index/label/linux/api/json", "application/json").getWebResponse().getContentAsString();
+        Assert.assertTrue(json, json.contains("\"count\":1"));
+        Assert.assertTrue(json, json.contains(n1.getNodeName()));
+    }
+}
@@ -0,0 +1,49 @@
+package org.jenkins.plugins.labelmanager.ui;
+
+import hudson.model.Node;
+import org.jenkins.plugins.labelmanager.LabelManagerPeriodicWork;
+import org.jenkins.plugins.labelmanager.LabelManagerTestBase;
+import org.jenkins.plugins.labelmanager.model.LabelAction;
+import org.jenkins.plugins.labelmanager.model.LabelCron;
+import org.jenkins.plugins.labelmanager.model.type.NodeType;
+import org.jenkins.plugins.labelmanager.plan.LabelPlan;
+import org.jenkins.plugins.labelmanager.plan.PlannedNode;
+import org.junit.Assert;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.util.Arrays;
+import java.util.GregorianCalendar;
+
+
+public class LabelPlanTest extends LabelManagerTestBase {
+
+    private static final long HOUR = 1000 * 60 * 60;
+
+    public LabelPlanTest() {
+        super();
+        j = new JenkinsRule();
+    }
+
+    @Test
+    public void testPlanDoesNotChangeNodes() throws Exception {
+        Node n1 = createOnlineNode("test1", "day");
+        Node n2 = createOnlineNode("test2", "day other");
+        LabelCron night = new LabelCron("night", "0 22 * * *", LabelAction.REPLACE, "night", new NodeType(n1), new NodeType(n2));
+        LabelCron morning = new LabelCron("morning", "0 6 * * *", LabelAction.REPLACE, "day", new NodeType(n1));
+        LabelCron never = new LabelCron("never", "0 12 29 2 *", LabelAction.ADD, "never", new NodeType(n1));
+
+        // 2017-01-02 00:00 local time, the window ends after 22:00 but before the next morning
+        long from = new GregorianCalendar(2017, 0, 2).getTimeInMillis();
+        LabelPlan plan = new LabelManagerPeriodicWork().plan(Arrays.asList(night, morning, never), from, from + 23 * HOUR);
+
+        Assert.assertEquals(Arrays.asList("morning", "night"), plan.getCrons());
+        Assert.assertEquals(2, plan.getNodes().size());
+        for (PlannedNode n : plan.getNodes()) {
+            assertLabelsMatch("night", n.getLabelsAfter());
+            Assert.assertTrue(n.isChanged());
+        }
+        assertLabelsMatch("day", n1.getLabelString());
+        assertLabelsMatch("day other", n2.getLabelString());
+    }
+}
@@ -0,0 +1,159 @@
+package org.jenkins.plugins.labelmanager.ui;
+
+import hudson.XmlFile;
+import hudson.model.Node;
+import hudson.model.Saveable;
+import hudson.model.listeners.SaveableListener;
+import jenkins.model.Jenkins;
+import org.jenkins.plugins.labelmanager.LabelManagerPeriodicWork;
+import org.jenkins.plugins.labelmanager.LabelManagerTestBase;
+import org.jenkins.plugins.labelmanager.batch.BatchResult;
+import org.jenkins.plugins.labelmanager.batch.NodeBatch;
+import org.jenkins.plugins.labelmanager.model.LabelAction;
+import org.jenkins.plugins.labelmanager.model.LabelCron;
+import org.jenkins.plugins.labelmanager.model.type.NodeType;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestExtension;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+
+public class NodeBatchTest extends LabelManagerTestBase {
+
+    private LabelManagerPeriodicWork periodicWork;
+
+    public NodeBatchTest() {
+        super();
+        j = new JenkinsRule();
+    }
+
+    @Before
+    public void setup() {
+        periodicWork = new LabelManagerPeriodicWork();
+    }
+
+    @Test
+    public void testSingleSavePerBatch() throws Exception {
+        Node n1 = createOnlineNode("test1");
+        Node n2 = createOnlineNode("test2", "old");
+        Node n3 = createOnlineNode("test3", "first second");
+        LabelCron labelCron1 = new LabelCron("labelCron1", "* * * * *", LabelAction.ADD, "new", new NodeType(n1), new NodeType(n2), new NodeType(n3));
+        LabelCron labelCron2 = new LabelCron("labelCron2", "* * * * *", LabelAction.REMOVE, "second old", new NodeType(n2), new NodeType(n3));
+
+        NodeBatch batch = new NodeBatch();
+        periodicWork.runCronTask(labelCron1, batch);
+        periodicWork.runCronTask(labelCron2, batch);
+        Assert.assertEquals(3, batch.getChanges().size());
+
+        SaveCounter counter = SaveableListener.all().get(SaveCounter.class);
+        counter.reset();
+        batch.commit();
+
+        Assert.assertEquals(1, counter.getJenkinsSaves());
+        assertLabelsMatch("new", n1.getLabelString());
+        assertLabelsMatch("new", n2.getLabelString());
+        assertLabelsMatch("first new", n3.getLabelString());
+    }
+
+    @Test
+    public void testParallelCommitKeepsNodeOrder() throws Exception {
+        Node n1 = createOnlineNode("test1", "first");
+        Node n2 = createOnlineNode("test2", "first second");
+        LabelCron labelCron1 = new LabelCron("labelCron1", "* * * * *", LabelAction.REPLACE, "a b", new NodeType(n1), new NodeType(n2));
+        LabelCron labelCron2 = new LabelCron("labelCron2", "* * * * *", LabelAction.ADD, "c", new NodeType(n1), new NodeType(n2));
+        LabelCron labelCron3 = new LabelCron("labelCron3", "* * * * *", LabelAction.REMOVE, "a", new NodeType(n2));
+
+        NodeBatch batch = new NodeBatch();
+        periodicWork.runCronTask(labelCron1, batch);
+        periodicWork.runCronTask(labelCron2, batch);
+        periodicWork.runCronTask(labelCron3, batch);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            BatchResult result = batch.commit(pool);
+            Assert.assertEquals(2, result.getSuccessCount());
+            Assert.assertEquals(0, result.getFailureCount());
+        } finally {
+            pool.shutdown();
+        }
+        assertLabelsMatch("a b c", n1.getLabelString());
+        assertLabelsMatch("b c", n2.getLabelString());
+    }
+
+    @Test
+    public void testSingleSaveWithPoolAndMaster() throws Exception {
+        Node n1 = createOnlineNode("test1");
+        Node n2 = createOnlineNode("test2", "old");
+        LabelCron labelCron1 = new LabelCron("labelCron1", "* * * * *", LabelAction.ADD, "new", new NodeType(n1), new NodeType(n2),
+                new NodeType(NodeType.MASTER_NODE, 3));
+        LabelCron labelCron2 = new LabelCron("labelCron2", "* * * * *", LabelAction.REMOVE, "old", new NodeType(n2));
+
+        NodeBatch batch = new NodeBatch();
+        periodicWork.runCronTask(labelCron1, batch);
+        periodicWork.runCronTask(labelCron2, batch);
+        Assert.assertEquals(3, batch.getChanges().size());
+
+        SaveCounter counter = SaveableListener.all().get(SaveCounter.class);
+        counter.reset();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            BatchResult result = batch.commit(pool);
+            Assert.assertEquals(3, result.getSuccessCount());
+            Assert.assertEquals(1, result.getSaves());
+        } finally {
+            pool.shutdown();
+        }
+
+        Assert.assertEquals(1, counter.getJenkinsSaves());
+        assertLabelsMatch("new", n1.getLabelString());
+        assertLabelsMatch("new", n2.getLabelString());
+        assertLabelsMatch("new", j.jenkins.getLabelString());
+        Assert.assertEquals(3, j.jenkins.getNumExecutors());
+    }
+
+    @Test
+    public void testEmptyBatchDoesNotSave() throws Exception {
+        SaveCounter counter = SaveableListener.all().get(SaveCounter.class);
+        counter.reset();
+        new NodeBatch().commit();
+        Assert.assertEquals(0, counter.getJenkinsSaves());
+    }
+
+    @Test
+    public void testUnchangedBatchDoesNotSave() throws Exception {
+        Node n1 = createOnlineNode("test1", "a b");
+        LabelCron labelCron = new LabelCron("labelCron", "* * * * *", LabelAction.ADD, "b", new NodeType(n1));
+        NodeBatch batch = new NodeBatch();
+        periodicWork.runCronTask(labelCron, batch);
+        Assert.assertFalse(batch.hasNodeWrites());
+
+        SaveCounter counter = SaveableListener.all().get(SaveCounter.class);
+        counter.reset();
+        BatchResult result = batch.commit();
+        Assert.assertEquals(1, result.getSuccessCount());
+        Assert.assertEquals(0, result.getSaves());
+        Assert.assertEquals(0, counter.getJenkinsSaves());
+    }
+
+    @TestExtension
+    public static class SaveCounter extends SaveableListener {
+        private int jenkinsSaves = 0;
+
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o instanceof Jenkins) jenkinsSaves++;
+        }
+
+        public void reset() {
+            jenkinsSaves = 0;
+        }
+
+        public int getJenkinsSaves() {
+            return jenkinsSaves;
+        }
+    }
+}
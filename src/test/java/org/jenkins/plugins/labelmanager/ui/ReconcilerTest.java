@@ -0,0 +1,65 @@
+package org.jenkins.plugins.labelmanager.ui;
+
+import hudson.model.Node;
+import org.jenkins.plugins.labelmanager.LabelManagerPeriodicWork;
+import org.jenkins.plugins.labelmanager.LabelManagerTestBase;
+import org.jenkins.plugins.labelmanager.batch.NodeBatch;
+import org.jenkins.plugins.labelmanager.model.LabelAction;
+import org.jenkins.plugins.labelmanager.model.LabelCron;
+import org.jenkins.plugins.labelmanager.model.type.NodeType;
+import org.jenkins.plugins.labelmanager.reconcile.Reconciler;
+import org.junit.Assert;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.util.Arrays;
+
+
+public class ReconcilerTest extends LabelManagerTestBase {
+
+    public ReconcilerTest() {
+        super();
+        j = new JenkinsRule();
+    }
+
+    @Test
+    public void testOnlyDriftedNodesAreWritten() throws Exception {
+        Node n1 = createOnlineNode("test1", "old");
+        Node n2 = createOnlineNode("test2", "a b");
+        LabelCron replace = new LabelCron("replace", "* * * * *", LabelAction.REPLACE, "a b", new NodeType(n1), new NodeType(n2));
+        LabelManagerPeriodicWork periodicWork = new LabelManagerPeriodicWork();
+        Reconciler reconciler = new Reconciler(() -> Arrays.asList(replace), periodicWork::stageNodes, () -> -1L);
+
+        NodeBatch batch = reconciler.reconcile(System.currentTimeMillis());
+        Assert.assertEquals(1, batch.getChanges().size());
+        Assert.assertEquals(n1.getNodeName(), batch.getChanges().iterator().next().getNodeName());
+        batch.commit();
+        assertLabelsMatch("a b", j.jenkins.getNode(n1.getNodeName()).getLabelString());
+
+        // in sync, nothing is staged
+        Assert.assertTrue(reconciler.reconcile(System.currentTimeMillis()).getChanges().isEmpty());
+
+        // a manual edit is drift
+        j.jenkins.getNode(n2.getNodeName()).setLabelString("a b manual");
+        batch = reconciler.reconcile(System.currentTimeMillis());
+        Assert.assertEquals(1, batch.getChanges().size());
+        batch.commit();
+        assertLabelsMatch("a b", j.jenkins.getNode(n2.getNodeName()).getLabelString());
+    }
+
+    @Test
+    public void testDriftWithEqualHashCode() throws Exception {
+        Node n1 = createOnlineNode("test1", "Aa c");
+        LabelCron remove = new LabelCron("remove", "* * * * *", LabelAction.REMOVE, "BB", new NodeType(n1));
+        LabelManagerPeriodicWork periodicWork = new LabelManagerPeriodicWork();
+        Reconciler reconciler = new Reconciler(() -> Arrays.asList(remove), periodicWork::stageNodes, () -> -1L);
+        Assert.assertTrue(reconciler.reconcile(System.currentTimeMillis()).getChanges().isEmpty());
+
+        // "BB c" has the same hash code as "Aa c"
+        j.jenkins.getNode(n1.getNodeName()).setLabelString("BB c");
+        NodeBatch batch = reconciler.reconcile(System.currentTimeMillis());
+        Assert.assertEquals(1, batch.getChanges().size());
+        batch.commit();
+        assertLabelsMatch("c", j.jenkins.getNode(n1.getNodeName()).getLabelString());
+    }
+}
@@ -0,0 +1,80 @@
+package org.jenkins.plugins.labelmanager.ui;
+
+import hudson.util.FormValidation;
+import org.jenkins.plugins.labelmanager.LabelManagerPeriodicWork;
+import org.jenkins.plugins.labelmanager.LabelManagerTestBase;
+import org.jenkins.plugins.labelmanager.model.LabelAction;
+import org.jenkins.plugins.labelmanager.model.LabelCron;
+import org.jenkins.plugins.labelmanager.model.type.ResourceType;
+import org.jenkins.plugins.labelmanager.resources.ResourceManager;
+import org.junit.Assert;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestExtension;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+public class ResourceTypeTest extends LabelManagerTestBase {
+
+    public ResourceTypeTest() {
+        super();
+        j = new JenkinsRule();
+    }
+
+    @Test
+    public void testSingleUpdatePerTick() throws Exception {
+        InMemoryResourceManager manager = (InMemoryResourceManager) ResourceManager.get();
+        StringBuilder typeString = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            manager.resources.put("res" + i, "free");
+            typeString.append(" resource:res").append(i);
+        }
+        manager.resources.put("other", "free");
+
+        LabelCron labelCron1 = new LabelCron("labelCron1", "* * * * *", LabelAction.ADD, "busy", typeString.toString().trim());
+        LabelCron labelCron2 = new LabelCron("labelCron2", "* * * * *", LabelAction.REMOVE, "free", typeString.toString().trim());
+        Assert.assertTrue(labelCron1.getTypes().iterator().next() instanceof ResourceType);
+
+        new LabelManagerPeriodicWork().runCronTask(labelCron1);
+        Assert.assertEquals(1, manager.updates);
+        Assert.assertEquals("free busy", manager.resources.get("res0"));
+        Assert.assertEquals("free busy", manager.resources.get("res999"));
+        Assert.assertEquals("free", manager.resources.get("other"));
+
+        new LabelManagerPeriodicWork().runCronTask(labelCron2);
+        Assert.assertEquals(2, manager.updates);
+        Assert.assertEquals("busy", manager.resources.get("res500"));
+    }
+
+    @Test
+    public void testUnknownResourceIsInvalid() throws Exception {
+        ((InMemoryResourceManager) ResourceManager.get()).resources.put("known", "");
+        LabelCron.DescriptorImpl descriptor = j.jenkins.getDescriptorByType(LabelCron.DescriptorImpl.class);
+        Assert.assertEquals(FormValidation.Kind.OK, descriptor.doCheckTypeString("resource:known").kind);
+        Assert.assertEquals(FormValidation.Kind.ERROR, descriptor.doCheckTypeString("resource:missing").kind);
+    }
+
+    /**
+     * Stand-in for the lockable resources, counts how often all resources are written.
+     */
+    @TestExtension
+    public static class InMemoryResourceManager extends ResourceManager {
+        private final Map<String, String> resources = new LinkedHashMap<>();
+        private int updates = 0;
+
+        @Override
+        public synchronized Map<String, String> getLabels() {
+            return new LinkedHashMap<>(resources);
+        }
+
+        @Override
+        public synchronized void setLabels(Map<String, String> labels) {
+            updates++;
+            for (Map.Entry<String, String> e : labels.entrySet()) {
+                if (resources.containsKey(e.getKey())) resources.put(e.getKey(), e.getValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.jenkins.plugins.labelmanager.ui;
+
+import hudson.util.FormValidation;
+import org.jenkins.plugins.labelmanager.LabelManagerPluginImpl;
+import org.jenkins.plugins.labelmanager.LabelManagerTestBase;
+import org.jenkins.plugins.labelmanager.model.LabelAction;
+import org.jenkins.plugins.labelmanager.model.LabelCron;
+import org.junit.Assert;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+public class UpdateCronsTest extends LabelManagerTestBase {
+
+    public UpdateCronsTest() {
+        super();
+        j = new JenkinsRule();
+    }
+
+    @Test
+    public void testOnlyChangedCronsAreReplaced() throws Exception {
+        LabelManagerPluginImpl plugin = LabelManagerPluginImpl.get();
+        LabelCron labelCron1 = new LabelCron("labelCron1", "H 3 * * *", LabelAction.ADD, "a", "master");
+        LabelCron labelCron2 = new LabelCron("labelCron2", "H 4 * * *", LabelAction.ADD, "b", "master");
+        Assert.assertEquals(2, plugin.updateCrons(Arrays.asList(labelCron1, labelCron2)).size());
+
+        // same definitions bound again from the form, only the second one changes
+        LabelCron same1 = new LabelCron("labelCron1", "H 3 * * *", LabelAction.ADD, "a", "master");
+        LabelCron changed2 = new LabelCron("labelCron2", "H 5 * * *", LabelAction.ADD, "b", "master");
+        Assert.assertEquals(Collections.singletonList(changed2), plugin.updateCrons(Arrays.asList(same1, changed2)));
+        List<LabelCron> crons = new ArrayList<>(plugin.getCrons());
+        Assert.assertSame(labelCron1, crons.get(0));
+        Assert.assertSame(changed2, crons.get(1));
+
+        // removing and invalid crons
+        LabelCron invalid = new LabelCron("labelCron3", "not a cron", LabelAction.ADD, "c", "master");
+        Assert.assertTrue(plugin.updateCrons(Arrays.asList(same1, invalid)).isEmpty());
+        Assert.assertEquals(Collections.singletonList(labelCron1), new ArrayList<>(plugin.getCrons()));
+        Assert.assertEquals(1, plugin.getSchedule().size());
+    }
+
+    @Test
+    public void testPutAndRemoveSingleCron() throws Exception {
+        LabelManagerPluginImpl plugin = LabelManagerPluginImpl.get();
+        LabelCron labelCron1 = new LabelCron("labelCron1", "H 3 * * *", LabelAction.ADD, "a", "master");
+        LabelCron labelCron2 = new LabelCron("labelCron2", "H 4 * * *", LabelAction.ADD, "b", "master");
+        plugin.updateCrons(Arrays.asList(labelCron1, labelCron2));
+
+        // renaming keeps the position
+        LabelCron renamed = new LabelCron("renamed", "H 3 * * *", LabelAction.ADD, "a", "master");
+        Assert.assertEquals(FormValidation.Kind.OK, plugin.putCron("labelCron1", renamed).kind);
+        Assert.assertEquals(Arrays.asList(renamed, labelCron2), new ArrayList<>(plugin.getCrons()));
+
+        // invalid or clashing crons change nothing
+        Assert.assertEquals(FormValidation.Kind.ERROR, plugin.putCron("renamed", new LabelCron("renamed", "nope", LabelAction.ADD, "a", "master")).kind);
+        Assert.assertEquals(FormValidation.Kind.ERROR, plugin.putCron(null, new LabelCron("labelCron2", "H 3 * * *", LabelAction.ADD, "a", "master")).kind);
+        Assert.assertSame(renamed, plugin.getCron("renamed"));
+
+        Assert.assertTrue(plugin.removeCron("renamed"));
+        Assert.assertFalse(plugin.removeCron("renamed"));
+        Assert.assertEquals(Collections.singletonList(labelCron2), new ArrayList<>(plugin.getCrons()));
+    }
+}